@@ -47,13 +47,12 @@ ALTER TABLE pst.posts
             REFERENCES usr.users(id);
 
 -- Índices
+-- Estado inicial (versão 1). As alterações seguintes de índices e tabelas ficam nas migrações versionadas em
+-- src/main/resources/db/migration, aplicadas pelo Flyway na inicialização do serviço.
 CREATE INDEX idx_posts_user_id ON pst.posts (user_id);
 CREATE INDEX idx_posts_parent_post_id ON pst.posts (parent_post_id);
-CREATE INDEX idx_posts_parent_post_id ON pst.posts (parent_post_id);
 CREATE INDEX idx_posts_id ON pst.posts (id);
-CREATE INDEX idx_posts_user_id ON pst.posts (user_id);
 CREATE INDEX idx_posts_parent_post_id_created_at ON pst.posts (parent_post_id, created_at);
-CREATE INDEX idx_posts_user_id ON pst.posts (user_id);
 CREATE INDEX idx_posts_deleted ON pst.posts (deleted);
 
 -- Tabela 'like'
@@ -61,7 +61,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         logger.info("Request: " + request.getMethod() + " " + path);
 
         // Ignorar validação para rotas públicas (já configuradas no SecurityConfig)
-        if ((path.startsWith("/auth/") || path.startsWith("/v3/api-docs") || path.startsWith("/swagger-ui") || path.startsWith("/posts/thread/"))) {
+        if ((path.startsWith("/auth/") || path.startsWith("/v3/api-docs") || path.startsWith("/swagger-ui") || path.startsWith("/posts/thread/") || path.startsWith("/actuator/"))) {
             logger.debug("Ignorando validação JWT para rota pública: {}", path);
             filterChain.doFilter(request, response);
             return;
@@ -1,10 +1,20 @@
 package com.toiter.postservice.config;
 
+import com.toiter.postservice.consumer.FailedRecordRouter;
 import com.toiter.postservice.model.LikeEvent;
+import com.toiter.postservice.model.PostData;
 import com.toiter.postservice.model.PostEvent;
 import com.toiter.postservice.model.PostViewedEvent;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.serialization.EventDeserializer;
+import com.toiter.postservice.serialization.EventEncoding;
+import com.toiter.postservice.serialization.EventSerializer;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,12 +22,21 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @EnableKafka
@@ -28,33 +47,156 @@ public class KafkaConfig {
     @Value("${SPRING_KAFKA_BOOTSTRAP_SERVERS}")
     private String bootstrapServers;
 
-    private Map<String, Object> producerConfigs(String transactionalId) {
+    // Consumers read both encodings; switch producers to binary once every consumer runs this version
+    @Value("${kafka.events.encoding:json}")
+    private String eventEncoding;
+
+    // Also bounds how long the outbox relay waits for a batch while it holds the batch's rows locked
+    @Value("${kafka.producer.post-events.delivery-timeout-ms:30000}")
+    private int postEventsDeliveryTimeoutMs;
+
+    @Value("${kafka.producer.telemetry.linger-ms:20}")
+    private int telemetryLingerMs;
+
+    @Value("${kafka.producer.telemetry.batch-size:65536}")
+    private int telemetryBatchSize;
+
+    @Value("${kafka.producer.telemetry.max-block-ms:1000}")
+    private long telemetryMaxBlockMs;
+
+    @Value("${kafka.consumer.like-events.max-poll-records:500}")
+    private int likeEventsMaxPollRecords;
+
+    @Value("${kafka.consumer.view-events.max-poll-records:1000}")
+    private int viewEventsMaxPollRecords;
+
+    // Events are keyed by post ID, so each post's events stay ordered whatever the number of consumer threads
+    @Value("${kafka.consumer.post-events.concurrency:1}")
+    private int postEventsConcurrency;
+
+    @Value("${kafka.consumer.like-events.concurrency:1}")
+    private int likeEventsConcurrency;
+
+    @Value("${kafka.consumer.view-events.concurrency:1}")
+    private int viewEventsConcurrency;
+
+    @Value("${kafka.consumer.retry.max-attempts:4}")
+    private int retryMaxAttempts;
+
+    @Value("${kafka.consumer.retry.initial-interval-ms:1000}")
+    private long retryInitialIntervalMs;
+
+    @Value("${kafka.consumer.retry.multiplier:2.0}")
+    private double retryMultiplier;
+
+    @Value("${kafka.consumer.retry.max-interval-ms:30000}")
+    private long retryMaxIntervalMs;
+
+    @Value("${kafka.snapshots.partitions:3}")
+    private int snapshotPartitions;
+
+    @Value("${kafka.snapshots.rebuild.max-poll-records:2000}")
+    private int snapshotRebuildMaxPollRecords;
+
+    /**
+     * Producer settings for post events. Idempotent, so retries neither duplicate nor reorder records within a
+     * partition; not transactional, since consumers deduplicate redelivered events by event ID.
+     */
+    private Map<String, Object> producerConfigs() {
         Map<String, Object> config = new HashMap<>();
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
         config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
-        config.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, transactionalId);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, postEventsDeliveryTimeoutMs);
         return config;
     }
 
-    private <T> ProducerFactory<String, T> producerFactory(Class<T> clazz, String transactionalId) {
-        return new DefaultKafkaProducerFactory<>(producerConfigs(transactionalId));
+    /**
+     * Producer settings for high-volume telemetry events (views and likes). Idempotent but not transactional,
+     * tuned to batch and compress records, and bounded so a slow broker can't hold the request thread for long.
+     */
+    private Map<String, Object> telemetryProducerConfigs() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.LINGER_MS_CONFIG, telemetryLingerMs);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, telemetryBatchSize);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        config.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, telemetryMaxBlockMs);
+        return config;
+    }
+
+    private <T> ProducerFactory<String, T> producerFactory(Class<T> clazz) {
+        return new DefaultKafkaProducerFactory<>(producerConfigs(), new StringSerializer(), eventSerializer());
+    }
+
+    private <T> ProducerFactory<String, T> telemetryProducerFactory(Class<T> clazz) {
+        return new DefaultKafkaProducerFactory<>(telemetryProducerConfigs(), new StringSerializer(), eventSerializer());
+    }
+
+    private <T> EventSerializer<T> eventSerializer() {
+        return new EventSerializer<>(EventEncoding.from(eventEncoding));
     }
 
     @Bean
     public ProducerFactory<String, PostViewedEvent> producerFactoryForPostViewedEvent() {
-        return producerFactory(PostViewedEvent.class, "post-view-transaction");
+        return telemetryProducerFactory(PostViewedEvent.class);
     }
 
     @Bean
     public ProducerFactory<String, PostEvent> producerFactory() {
-        return producerFactory(PostEvent.class, "post-transaction");
+        return producerFactory(PostEvent.class);
     }
 
     @Bean
     public ProducerFactory<String, LikeEvent> producerFactoryForLikedEvent() {
-        return producerFactory(LikeEvent.class, "like-transaction");
+        return telemetryProducerFactory(LikeEvent.class);
+    }
+
+    /**
+     * Template used to move failed records to retry and dead letter topics, and to replay dead letters. Records
+     * that could not be deserialized are forwarded as the original bytes, everything else is re-encoded.
+     */
+    @Bean
+    public KafkaTemplate<Object, Object> deadLetterKafkaTemplate() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(config,
+                byTypeSerializer(new StringSerializer()), byTypeSerializer(eventSerializer())));
+    }
+
+    private static DelegatingByTypeSerializer byTypeSerializer(Serializer<?> fallback) {
+        Map<Class<?>, Serializer<?>> delegates = new LinkedHashMap<>();
+        delegates.put(byte[].class, new ByteArraySerializer());
+        delegates.put(Object.class, fallback);
+        return new DelegatingByTypeSerializer(delegates, true);
+    }
+
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(KafkaTemplate<Object, Object> deadLetterKafkaTemplate, FailedRecordRouter failedRecordRouter) {
+        return new DeadLetterPublishingRecoverer(deadLetterKafkaTemplate, failedRecordRouter);
+    }
+
+    /**
+     * Error handler for the source topics. Failed records are not retried in place: they are moved to the retry
+     * topic straight away so one bad record never stalls its partition.
+     */
+    private DefaultErrorHandler sourceErrorHandler(DeadLetterPublishingRecoverer recoverer) {
+        return new DefaultErrorHandler(recoverer, new FixedBackOff(0L, 0L));
+    }
+
+    /**
+     * Error handler for the retry topics: exponential backoff, then the dead letter topic.
+     */
+    private DefaultErrorHandler retryErrorHandler(DeadLetterPublishingRecoverer recoverer) {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(retryMaxAttempts - 1);
+        backOff.setInitialInterval(retryInitialIntervalMs);
+        backOff.setMultiplier(retryMultiplier);
+        backOff.setMaxInterval(retryMaxIntervalMs);
+        return new DefaultErrorHandler(recoverer, backOff);
     }
 
     private Map<String, Object> consumerConfigs(String groupId) {
@@ -66,9 +208,12 @@ public class KafkaConfig {
     }
 
     private <T> ConsumerFactory<String, T> consumerFactory(Class<T> clazz, String groupId) {
-        JsonDeserializer<T> deserializer = new JsonDeserializer<>(clazz);
-        deserializer.addTrustedPackages("*");
-        return new DefaultKafkaConsumerFactory<>(consumerConfigs(groupId), new StringDeserializer(), deserializer);
+        return consumerFactory(clazz, consumerConfigs(groupId));
+    }
+
+    private <T> ConsumerFactory<String, T> consumerFactory(Class<T> clazz, Map<String, Object> config) {
+        // Undeserializable records reach the error handler with a null value instead of failing every poll
+        return new DefaultKafkaConsumerFactory<>(config, new StringDeserializer(), new ErrorHandlingDeserializer<>(new EventDeserializer<>(clazz)));
     }
 
     @Bean
@@ -78,12 +223,61 @@ public class KafkaConfig {
 
     @Bean
     public ConsumerFactory<String, LikeEvent> consumerFactoryForLikedEvent() {
-        return consumerFactory(LikeEvent.class, "like-service-group");
+        Map<String, Object> config = consumerConfigs("like-service-group");
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, likeEventsMaxPollRecords);
+        return consumerFactory(LikeEvent.class, config);
     }
 
     @Bean
     public ConsumerFactory<String, PostViewedEvent> consumerFactoryForPostViewedEvent() {
-        return consumerFactory(PostViewedEvent.class, "view-service-group");
+        Map<String, Object> config = consumerConfigs("view-service-group");
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, viewEventsMaxPollRecords);
+        return consumerFactory(PostViewedEvent.class, config);
+    }
+
+    /**
+     * Raw consumer used to replay dead letters. Offsets are committed by the replay itself, never automatically.
+     */
+    @Bean
+    public ConsumerFactory<byte[], byte[]> deadLetterConsumerFactory() {
+        Map<String, Object> config = consumerConfigs("dead-letter-replay");
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return new DefaultKafkaConsumerFactory<>(config, new ByteArrayDeserializer(), new ByteArrayDeserializer());
+    }
+
+    /**
+     * Compacted topic holding the latest cached state of every post, keyed by post ID.
+     */
+    @Bean
+    public NewTopic postSnapshotsTopic() {
+        return TopicBuilder.name(KafkaProducer.POST_SNAPSHOTS_TOPIC)
+                .partitions(snapshotPartitions)
+                .compact()
+                .build();
+    }
+
+    /**
+     * Snapshots are only ever written by the consumer, so they share the batched telemetry producer settings.
+     */
+    @Bean
+    public KafkaTemplate<String, PostData> kafkaTemplateForPostSnapshot() {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(telemetryProducerConfigs(),
+                new StringSerializer(), new JsonSerializer<PostData>().noTypeInfo()));
+    }
+
+    /**
+     * Consumer used to replay the snapshot topic into the cache. It is assigned partitions directly and never
+     * commits, every rebuild reads the topic from the beginning.
+     */
+    @Bean
+    public ConsumerFactory<String, PostData> postSnapshotConsumerFactory() {
+        Map<String, Object> config = consumerConfigs("post-snapshot-rebuild");
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, snapshotRebuildMaxPollRecords);
+        JsonDeserializer<PostData> deserializer = new JsonDeserializer<>(PostData.class, false);
+        deserializer.ignoreTypeHeaders();
+        return new DefaultKafkaConsumerFactory<>(config, new StringDeserializer(), new ErrorHandlingDeserializer<>(deserializer));
     }
 
     @Bean
@@ -101,17 +295,57 @@ public class KafkaConfig {
         return new KafkaTemplate<>(producerFactory);
     }
 
+    /**
+     * Record listener for the post event retry topics.
+     */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, PostEvent> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, PostEvent> kafkaListenerContainerFactory(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer) {
         ConcurrentKafkaListenerContainerFactory<String, PostEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(postEventsConcurrency);
+        factory.setCommonErrorHandler(retryErrorHandler(deadLetterPublishingRecoverer));
         return factory;
     }
 
+    /**
+     * Batch listener for post events. Records are handed to {@code KeyOrderedDispatcher}, which reports the first
+     * unprocessed record on failure so only the processed prefix of the batch is committed.
+     */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, LikeEvent> kafkaListenerContainerFactoryForLikedEvent() {
+    public ConcurrentKafkaListenerContainerFactory<String, PostEvent> kafkaBatchListenerContainerFactory(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer) {
+        ConcurrentKafkaListenerContainerFactory<String, PostEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(postEventsConcurrency);
+        factory.setCommonErrorHandler(sourceErrorHandler(deadLetterPublishingRecoverer));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        return factory;
+    }
+
+    /**
+     * Record listener for the like event retry topic.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LikeEvent> kafkaListenerContainerFactoryForLikedEvent(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer) {
+        ConcurrentKafkaListenerContainerFactory<String, LikeEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactoryForLikedEvent());
+        factory.setConcurrency(likeEventsConcurrency);
+        factory.setCommonErrorHandler(retryErrorHandler(deadLetterPublishingRecoverer));
+        return factory;
+    }
+
+    /**
+     * Batch listener for like events. Offsets are committed once per poll, after the listener has flushed the
+     * coalesced batch to the cache.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LikeEvent> kafkaBatchListenerContainerFactoryForLikedEvent(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer) {
         ConcurrentKafkaListenerContainerFactory<String, LikeEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactoryForLikedEvent());
+        factory.setConcurrency(likeEventsConcurrency);
+        factory.setCommonErrorHandler(sourceErrorHandler(deadLetterPublishingRecoverer));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
         return factory;
     }
 
@@ -119,6 +353,21 @@ public class KafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, PostViewedEvent> kafkaListenerContainerFactoryForPostViewedEvent() {
         ConcurrentKafkaListenerContainerFactory<String, PostViewedEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactoryForPostViewedEvent());
+        factory.setConcurrency(viewEventsConcurrency);
+        return factory;
+    }
+
+    /**
+     * Batch listener for view events. Acknowledgment is manual because views are aggregated in memory and only
+     * acknowledged once {@code ViewCountAggregator} has flushed them.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, PostViewedEvent> kafkaBatchListenerContainerFactoryForPostViewedEvent() {
+        ConcurrentKafkaListenerContainerFactory<String, PostViewedEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactoryForPostViewedEvent());
+        factory.setConcurrency(viewEventsConcurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         return factory;
     }
 }
\ No newline at end of file
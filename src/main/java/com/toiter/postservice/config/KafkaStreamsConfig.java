@@ -0,0 +1,138 @@
+package com.toiter.postservice.config;
+
+import com.toiter.postservice.model.*;
+import com.toiter.postservice.serialization.EventDeserializer;
+import com.toiter.postservice.serialization.EventEncoding;
+import com.toiter.postservice.serialization.EventSerializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.*;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.annotation.KafkaStreamsDefaultConfiguration;
+import org.springframework.kafka.config.KafkaStreamsConfiguration;
+import org.springframework.kafka.support.serializer.JsonSerde;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kafka Streams topology that keeps exact per-post counters in a RocksDB backed state store
+ * ({@value #POST_COUNTERS_STORE}), queried through {@code PostCounterStore}.
+ * <p>
+ * All events are keyed by post ID, so like and view events aggregate without repartitioning. Post events also
+ * update their parent's reply or repost count and are re-keyed through a repartition topic. The four source topics
+ * must therefore have the same number of partitions, and the same retention, for counters to be complete.
+ */
+@Configuration
+@EnableKafkaStreams
+@ConditionalOnProperty(name = "kafka.streams.counters.enabled", havingValue = "true")
+public class KafkaStreamsConfig {
+
+    public static final String POST_COUNTERS_STORE = "post-counters-store";
+
+    @Value("${SPRING_KAFKA_BOOTSTRAP_SERVERS}")
+    private String bootstrapServers;
+
+    @Value("${kafka.streams.application-id:toiter-postservice-counters}")
+    private String applicationId;
+
+    @Value("${kafka.streams.state-dir:/tmp/kafka-streams}")
+    private String stateDir;
+
+    @Value("${kafka.streams.standby-replicas:1}")
+    private int standbyReplicas;
+
+    @Value("${kafka.streams.processing-guarantee:exactly_once_v2}")
+    private String processingGuarantee;
+
+    @Value("${kafka.streams.application-server:}")
+    private String applicationServer;
+
+    @Bean(name = KafkaStreamsDefaultConfiguration.DEFAULT_STREAMS_CONFIG_BEAN_NAME)
+    public KafkaStreamsConfiguration kafkaStreamsConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(StreamsConfig.STATE_DIR_CONFIG, stateDir);
+        config.put(StreamsConfig.NUM_STANDBY_REPLICAS_CONFIG, standbyReplicas);
+        config.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, processingGuarantee);
+        config.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        if (!applicationServer.isEmpty()) {
+            config.put(StreamsConfig.APPLICATION_SERVER_CONFIG, applicationServer);
+        }
+        return new KafkaStreamsConfiguration(config);
+    }
+
+    @Bean
+    public KTable<String, PostCounters> postCountersTable(StreamsBuilder builder) {
+        Serde<String> keySerde = Serdes.String();
+        Serde<LikeEvent> likeSerde = eventSerde(LikeEvent.class);
+        Serde<PostViewedEvent> viewSerde = eventSerde(PostViewedEvent.class);
+        Serde<PostEvent> postSerde = eventSerde(PostEvent.class);
+        JsonSerde<PostCounters> countersSerde = new JsonSerde<>(PostCounters.class).noTypeInfo();
+
+        KGroupedStream<String, LikeEvent> likes = builder
+                .stream("like-events-topic", Consumed.with(keySerde, likeSerde))
+                .filter((key, event) -> key != null)
+                .groupByKey(Grouped.with(keySerde, likeSerde));
+
+        KGroupedStream<String, PostViewedEvent> views = builder
+                .stream("post-viewed-topic", Consumed.with(keySerde, viewSerde))
+                .filter((key, event) -> key != null)
+                .groupByKey(Grouped.with(keySerde, viewSerde));
+
+        KGroupedStream<String, PostCounters> postDeltas = builder
+                .stream(List.of("post-created-topic", "post-deleted-topic"), Consumed.with(keySerde, postSerde))
+                .flatMap((key, event) -> postEventDeltas(event))
+                .groupByKey(Grouped.with("post-counter-deltas", keySerde, countersSerde));
+
+        return likes
+                .<PostCounters>cogroup((postId, event, counters) -> counters.addLikes(event instanceof PostUnlikedEvent ? -1 : 1))
+                .cogroup(views, (postId, event, counters) -> counters.addViews(1))
+                .cogroup(postDeltas, (postId, delta, counters) -> counters.add(delta))
+                .aggregate(PostCounters::new,
+                        Materialized.<String, PostCounters, KeyValueStore<Bytes, byte[]>>as(POST_COUNTERS_STORE)
+                                .withKeySerde(keySerde)
+                                .withValueSerde(countersSerde));
+    }
+
+    private static List<KeyValue<String, PostCounters>> postEventDeltas(PostEvent event) {
+        if (event == null || event.getPost() == null) {
+            return List.of();
+        }
+        int sign = event instanceof PostDeletedEvent ? -1 : 1;
+        List<KeyValue<String, PostCounters>> deltas = new ArrayList<>(3);
+
+        PostCounters self = new PostCounters();
+        if (sign > 0) {
+            self.setCreated(true);
+        } else {
+            self.setDeleted(true);
+        }
+        deltas.add(KeyValue.pair(String.valueOf(event.getPost().getId()), self));
+
+        if (event.getPost().getParentPostId() != null) {
+            deltas.add(KeyValue.pair(String.valueOf(event.getPost().getParentPostId()), new PostCounters().addReplies(sign)));
+        }
+        if (event.getPost().getRepostParentId() != null) {
+            deltas.add(KeyValue.pair(String.valueOf(event.getPost().getRepostParentId()), new PostCounters().addReposts(sign)));
+        }
+        return deltas;
+    }
+
+    private static <T> Serde<T> eventSerde(Class<T> type) {
+        // Source topics are only read here, the encoding used for writing doesn't matter
+        return Serdes.serdeFrom(new EventSerializer<>(EventEncoding.JSON), new EventDeserializer<>(type));
+    }
+}
@@ -103,6 +103,7 @@ public class RateLimitFilter extends OncePerRequestFilter {
         return path.startsWith("/v3/api-docs") ||
                 path.startsWith("/swagger-ui") ||
                 path.startsWith("/images/") ||
+                path.startsWith("/actuator/") ||
                 path.startsWith("/internal/") ||
                 path.startsWith("/api/internal/");
     }
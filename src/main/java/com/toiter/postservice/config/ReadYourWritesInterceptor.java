@@ -0,0 +1,41 @@
+package com.toiter.postservice.config;
+
+import com.toiter.postservice.service.JwtService;
+import com.toiter.postservice.service.ReadYourWritesTracker;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Sends the reads of a GET request to the primary when its user wrote something in the read-your-writes window,
+ * so they see their own post or like even if the replicas haven't replayed it yet.
+ */
+@Component
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final JwtService jwtService;
+
+    public ReadYourWritesInterceptor(ReadYourWritesTracker readYourWritesTracker, JwtService jwtService) {
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.jwtService = jwtService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!readYourWritesTracker.isEnabled() || !"GET".equals(request.getMethod())) {
+            return true;
+        }
+        Long userId = jwtService.getUserIdFromAuthentication(SecurityContextHolder.getContext().getAuthentication());
+        if (readYourWritesTracker.hasRecentWrite(userId)) {
+            ReplicaRoutingDataSource.requirePrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaRoutingDataSource.clearPrimaryRequired();
+    }
+}
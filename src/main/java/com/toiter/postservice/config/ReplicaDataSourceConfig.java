@@ -0,0 +1,101 @@
+package com.toiter.postservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single datasource with a {@link ReplicaRoutingDataSource} when {@code datasource.replicas.urls}
+ * lists one or more replica JDBC URLs (comma separated). Replicas use the primary's credentials unless
+ * {@code datasource.replicas.username} and {@code datasource.replicas.password} are set.
+ * <p>
+ * Every pool is configured from {@code spring.datasource.hikari.*}, as the auto-configured pool would be; replica
+ * pools then apply {@code datasource.replicas.hikari.*} on top, e.g. {@code datasource.replicas.hikari.maximum-pool-size}.
+ * <p>
+ * Each pool is named ({@code primary}, {@code replica-1}, ...) and publishes its {@code hikaricp.connections.*}
+ * metrics under that name.
+ */
+@Configuration
+@ConditionalOnExpression("!'${datasource.replicas.urls:}'.isBlank()")
+public class ReplicaDataSourceConfig {
+    private static final String PRIMARY_HIKARI_PREFIX = "spring.datasource.hikari";
+    private static final String REPLICA_HIKARI_PREFIX = "datasource.replicas.hikari";
+
+    @Value("${datasource.replicas.urls}")
+    private List<String> replicaUrls;
+
+    @Value("${datasource.replicas.username:}")
+    private String replicaUsername;
+
+    @Value("${datasource.replicas.password:}")
+    private String replicaPassword;
+
+    @Value("${datasource.replicas.max-lag:PT1S}")
+    private Duration maxLag;
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls) {
+            String name = "replica-" + (replicas.size() + 1);
+            HikariDataSource replica = pool(properties, environment, PRIMARY_HIKARI_PREFIX, REPLICA_HIKARI_PREFIX);
+            replica.setJdbcUrl(url.trim());
+            if (!replicaUsername.isBlank()) {
+                replica.setUsername(replicaUsername);
+                replica.setPassword(replicaPassword);
+            }
+            replica.setReadOnly(true);
+            replicas.put(name, withMetrics(replica, name, meterRegistry));
+        }
+        return new ReplicaLagMonitor(replicas, maxLag, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment, ReplicaLagMonitor replicaLagMonitor, MeterRegistry meterRegistry) {
+        HikariDataSource primary = pool(properties, environment, PRIMARY_HIKARI_PREFIX);
+
+        Map<Object, Object> targets = new HashMap<>(replicaLagMonitor.getReplicas());
+        targets.put(ReplicaRoutingDataSource.PRIMARY, withMetrics(primary, ReplicaRoutingDataSource.PRIMARY, meterRegistry));
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(List.copyOf(replicaLagMonitor.getReplicas().keySet()), replicaLagMonitor, meterRegistry);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Builds a pool from the {@code spring.datasource.*} connection settings and binds the Hikari settings under each
+     * prefix in turn, so later prefixes override earlier ones.
+     */
+    private static HikariDataSource pool(DataSourceProperties properties, Environment environment, String... hikariPrefixes) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder binder = Binder.get(environment);
+        for (String prefix : hikariPrefixes) {
+            binder.bind(prefix, Bindable.ofInstance(dataSource));
+        }
+        return dataSource;
+    }
+
+    private static HikariDataSource withMetrics(HikariDataSource dataSource, String name, MeterRegistry meterRegistry) {
+        dataSource.setPoolName(name);
+        dataSource.setMetricRegistry(meterRegistry);
+        return dataSource;
+    }
+}
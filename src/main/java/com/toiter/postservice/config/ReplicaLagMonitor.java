@@ -0,0 +1,73 @@
+package com.toiter.postservice.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures how far each replica is behind the primary every {@code datasource.replicas.lag-check-interval-ms}
+ * and exposes it as {@code datasource.replica.lag}. A replica is usable while its lag is at most
+ * {@code datasource.replicas.max-lag}; one that can't be reached, or hasn't been checked yet, is not.
+ */
+public class ReplicaLagMonitor {
+    // A replica that has replayed everything it received is up to date even if the primary has been idle for a while
+    static final String LAG_QUERY = """
+            SELECT COALESCE(CASE
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+            END, 0)
+            """;
+
+    private final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+    private final Map<String, DataSource> replicas;
+    private final Map<String, JdbcTemplate> jdbcTemplates = new LinkedHashMap<>();
+    private final Map<String, Double> lagSeconds = new ConcurrentHashMap<>();
+    private final double maxLagSeconds;
+
+    public ReplicaLagMonitor(Map<String, DataSource> replicas, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replicas = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        replicas.forEach((name, dataSource) -> {
+            jdbcTemplates.put(name, new JdbcTemplate(dataSource));
+            Gauge.builder("datasource.replica.lag", lagSeconds, lags -> lags.getOrDefault(name, Double.NaN))
+                    .description("Seconds the replica is behind the primary")
+                    .tag("replica", name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        });
+    }
+
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    public boolean isUsable(String replica) {
+        Double lag = lagSeconds.get(replica);
+        return lag != null && lag <= maxLagSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.lag-check-interval-ms:1000}")
+    public void check() {
+        jdbcTemplates.forEach((name, jdbcTemplate) -> {
+            try {
+                Double lag = jdbcTemplate.queryForObject(LAG_QUERY, Double.class);
+                lagSeconds.put(name, lag == null ? 0 : lag);
+            } catch (RuntimeException e) {
+                Double previous = lagSeconds.put(name, Double.POSITIVE_INFINITY);
+                if (previous == null || previous != Double.POSITIVE_INFINITY) {
+                    logger.warn("Replica {} is unreachable, reading from the primary instead", name, e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package com.toiter.postservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the replicas, round robin, and everything else to the primary. A replica
+ * lagging more than {@code datasource.replicas.max-lag} is skipped; if none is usable, or the current request
+ * has to read its own writes ({@link #requirePrimary()}), reads go to the primary too.
+ * <p>
+ * Must sit behind a {@code LazyConnectionDataSourceProxy}, so the connection is only taken once the transaction
+ * has been marked read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final List<String> replicas;
+    private final ReplicaLagMonitor lagMonitor;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Counter> routedCounters = new HashMap<>();
+
+    public ReplicaRoutingDataSource(List<String> replicas, ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.replicas = List.copyOf(replicas);
+        this.lagMonitor = lagMonitor;
+        routedCounters.put(PRIMARY, meterRegistry.counter("datasource.routed", "target", PRIMARY));
+        for (String replica : replicas) {
+            routedCounters.put(replica, meterRegistry.counter("datasource.routed", "target", replica));
+        }
+    }
+
+    /**
+     * Sends every read on the current thread to the primary until {@link #clearPrimaryRequired()}.
+     */
+    public static void requirePrimary() {
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+    }
+
+    public static void clearPrimaryRequired() {
+        PRIMARY_REQUIRED.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String target = chooseTarget();
+        routedCounters.get(target).increment();
+        return target;
+    }
+
+    private String chooseTarget() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || Boolean.TRUE.equals(PRIMARY_REQUIRED.get())) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            String replica = replicas.get((start + i) % replicas.size());
+            if (lagMonitor.isUsable(replica)) {
+                return replica;
+            }
+        }
+        return PRIMARY;
+    }
+}
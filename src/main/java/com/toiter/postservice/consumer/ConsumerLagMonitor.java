@@ -0,0 +1,122 @@
+package com.toiter.postservice.consumer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Periodically compares the committed offsets of the service's consumer groups with the end of each partition and
+ * exports the difference as {@code kafka.consumer.group.lag{group,topic,partition}} and
+ * {@code kafka.consumer.group.lag.total{group}}. Retry topics share their group, so their lag is included.
+ * <p>
+ * A check can wait up to {@code kafka.consumer.lag.timeout-ms} per call when the broker is slow; the scheduler has
+ * more than one thread ({@code spring.task.scheduling.pool.size}) so that doesn't hold up the other jobs.
+ */
+@Component
+public class ConsumerLagMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerLagMonitor.class);
+
+    private final AdminClient adminClient;
+    private final List<String> groups;
+    private final long timeoutMs;
+    private final MultiGauge partitionLag;
+    private final MultiGauge totalLag;
+    private final Map<String, Map<TopicPartition, Long>> lastLag = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConsumerLagMonitor(KafkaAdmin kafkaAdmin, MeterRegistry meterRegistry,
+                              @Value("${kafka.consumer.lag.groups:post-event-consumers,like-event-consumers,view-event-consumers}") List<String> groups,
+                              @Value("${kafka.consumer.lag.timeout-ms:5000}") long timeoutMs) {
+        this(AdminClient.create(kafkaAdmin.getConfigurationProperties()), meterRegistry, groups, timeoutMs);
+    }
+
+    ConsumerLagMonitor(AdminClient adminClient, MeterRegistry meterRegistry, List<String> groups, long timeoutMs) {
+        this.adminClient = adminClient;
+        this.groups = groups;
+        this.timeoutMs = timeoutMs;
+        this.partitionLag = MultiGauge.builder("kafka.consumer.group.lag")
+                .description("Records between the committed offset and the end of the partition")
+                .register(meterRegistry);
+        this.totalLag = MultiGauge.builder("kafka.consumer.group.lag.total")
+                .description("Sum of the group's lag over all its partitions")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.consumer.lag.interval-ms:15000}")
+    public void refresh() {
+        for (String group : groups) {
+            try {
+                lastLag.put(group, lagOf(group));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                // Keep the previous values rather than reporting a lag of zero
+                logger.warn("Failed to fetch lag of consumer group {}: {}", group, e.getMessage());
+            }
+        }
+
+        List<MultiGauge.Row<?>> partitionRows = new ArrayList<>();
+        List<MultiGauge.Row<?>> totalRows = new ArrayList<>();
+        lastLag.forEach((group, lag) -> {
+            long total = 0;
+            for (Map.Entry<TopicPartition, Long> entry : lag.entrySet()) {
+                TopicPartition partition = entry.getKey();
+                partitionRows.add(MultiGauge.Row.of(Tags.of("group", group, "topic", partition.topic(),
+                        "partition", String.valueOf(partition.partition())), entry.getValue()));
+                total += entry.getValue();
+            }
+            totalRows.add(MultiGauge.Row.of(Tags.of("group", group), total));
+        });
+        partitionLag.register(partitionRows, true);
+        totalLag.register(totalRows, true);
+    }
+
+    private Map<TopicPartition, Long> lagOf(String group) throws InterruptedException, ExecutionException, TimeoutException {
+        Map<TopicPartition, OffsetAndMetadata> committed = adminClient.listConsumerGroupOffsets(group)
+                .partitionsToOffsetAndMetadata().get(timeoutMs, TimeUnit.MILLISECONDS);
+        Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+        committed.keySet().forEach(partition -> latest.put(partition, OffsetSpec.latest()));
+        if (latest.isEmpty()) {
+            return Map.of();
+        }
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = adminClient.listOffsets(latest)
+                .all().get(timeoutMs, TimeUnit.MILLISECONDS);
+
+        Map<TopicPartition, Long> lag = new HashMap<>();
+        committed.forEach((partition, offset) -> {
+            ListOffsetsResult.ListOffsetsResultInfo end = ends.get(partition);
+            if (offset != null && end != null) {
+                lag.put(partition, Math.max(0, end.offset() - offset.offset()));
+            }
+        });
+        return lag;
+    }
+
+    @PreDestroy
+    public void close() {
+        adminClient.close();
+    }
+}
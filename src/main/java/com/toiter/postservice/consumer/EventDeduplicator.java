@@ -0,0 +1,86 @@
+package com.toiter.postservice.consumer;
+
+import com.toiter.postservice.service.CacheService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Makes event application idempotent within a bounded window. The IDs of applied events are kept in Redis for
+ * {@code kafka.consumer.dedup.window}, and redelivered events whose ID is still there are skipped.
+ * <p>
+ * IDs are checked before applying and marked only after the event has been applied, so a failure in between causes
+ * a redelivery to be applied again rather than lost. Events produced before IDs existed have none and are always
+ * applied.
+ */
+@Component
+public class EventDeduplicator {
+    private final CacheService cacheService;
+    private final MeterRegistry meterRegistry;
+    private final Duration window;
+
+    public EventDeduplicator(CacheService cacheService, MeterRegistry meterRegistry,
+                             @Value("${kafka.consumer.dedup.window:PT24H}") Duration window) {
+        this.cacheService = cacheService;
+        this.meterRegistry = meterRegistry;
+        this.window = window;
+    }
+
+    /**
+     * Returns the events that have not been applied yet, in their original order, dropping duplicates of the same
+     * ID within the list as well. Null events are kept so they still reach the error handling.
+     */
+    public <T> List<T> unapplied(String topic, List<T> events, Function<T, UUID> eventId) {
+        Set<UUID> applied = cacheService.getAppliedEventIds(events.stream().filter(Objects::nonNull).map(eventId).filter(Objects::nonNull).toList());
+        Set<UUID> seen = new HashSet<>(applied);
+        List<T> fresh = new ArrayList<>(events.size());
+        for (T event : events) {
+            UUID id = event == null ? null : eventId.apply(event);
+            if (id == null || seen.add(id)) {
+                fresh.add(event);
+            }
+        }
+        countDuplicates(topic, events.size() - fresh.size());
+        return fresh;
+    }
+
+    public boolean isApplied(String topic, UUID eventId) {
+        if (eventId == null) {
+            return false;
+        }
+        boolean applied = !cacheService.getAppliedEventIds(List.of(eventId)).isEmpty();
+        if (applied) {
+            countDuplicates(topic, 1);
+        }
+        return applied;
+    }
+
+    public void markApplied(Collection<UUID> eventIds) {
+        markApplied(eventIds, window);
+    }
+
+    /**
+     * Marks the events as applied for a window other than the default one, for high-volume events where keeping
+     * an ID per event for the whole default window would cost more than the rare duplicate.
+     */
+    public void markApplied(Collection<UUID> eventIds, Duration window) {
+        List<UUID> ids = eventIds.stream().filter(Objects::nonNull).toList();
+        cacheService.markEventsApplied(ids, window);
+    }
+
+    private void countDuplicates(String topic, int duplicates) {
+        if (duplicates > 0) {
+            meterRegistry.counter("kafka.consumer.duplicates", "topic", topic).increment(duplicates);
+        }
+    }
+}
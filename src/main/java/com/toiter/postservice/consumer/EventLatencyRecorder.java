@@ -0,0 +1,65 @@
+package com.toiter.postservice.consumer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records {@code kafka.event.visible.latency}: the time from an event's Kafka timestamp, set when it is produced,
+ * to the moment its effect has been written to the cache. Recorded per source topic as a percentile histogram.
+ */
+@Component
+public class EventLatencyRecorder {
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EventLatencyRecorder(MeterRegistry meterRegistry) {
+        this(meterRegistry, Clock.systemUTC());
+    }
+
+    EventLatencyRecorder(MeterRegistry meterRegistry, Clock clock) {
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    public void record(String topic, long producedAtMillis) {
+        record(timer(topic), clock.millis(), producedAtMillis);
+    }
+
+    public void recordAll(String topic, Collection<Long> producedAtMillis) {
+        if (producedAtMillis.isEmpty()) {
+            return;
+        }
+        Timer timer = timer(topic);
+        long now = clock.millis();
+        for (Long producedAt : producedAtMillis) {
+            if (producedAt != null) {
+                record(timer, now, producedAt);
+            }
+        }
+    }
+
+    private void record(Timer timer, long now, long producedAtMillis) {
+        // Records without a timestamp report -1; clock skew between hosts can make the difference negative
+        if (producedAtMillis >= 0) {
+            timer.record(Math.max(0, now - producedAtMillis), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Timer timer(String topic) {
+        return timers.computeIfAbsent(topic, t -> Timer.builder("kafka.event.visible.latency")
+                .description("Time from event production until its effect is visible in the cache")
+                .tag("topic", t)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,61 @@
+package com.toiter.postservice.consumer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.stereotype.Component;
+
+import java.util.function.BiFunction;
+
+/**
+ * Chooses where a failed record goes. Records that fail on a source topic are moved to {@code <topic>-retry}, where
+ * they are retried with backoff without holding up the source partition; records that fail again there, or that
+ * can't be deserialized at all, go to {@code <topic>-dlt}.
+ * <p>
+ * The partition is left to the producer so records keep their post ID key partitioning.
+ */
+@Component
+public class FailedRecordRouter implements BiFunction<ConsumerRecord<?, ?>, Exception, TopicPartition> {
+    public static final String RETRY_SUFFIX = "-retry";
+    public static final String DLT_SUFFIX = "-dlt";
+
+    private final Logger logger = LoggerFactory.getLogger(FailedRecordRouter.class);
+    private final MeterRegistry meterRegistry;
+
+    public FailedRecordRouter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public TopicPartition apply(ConsumerRecord<?, ?> record, Exception exception) {
+        String sourceTopic = sourceTopic(record.topic());
+        boolean deadLetter = record.topic().endsWith(RETRY_SUFFIX) || record.value() == null || isDeserializationFailure(exception);
+        String destination = sourceTopic + (deadLetter ? DLT_SUFFIX : RETRY_SUFFIX);
+
+        logger.warn("Routing record {}-{}@{} with key {} to {}", record.topic(), record.partition(), record.offset(), record.key(), destination, exception);
+        meterRegistry.counter("kafka.consumer.failed.records", "topic", sourceTopic, "destination", deadLetter ? "dlt" : "retry").increment();
+        return new TopicPartition(destination, -1);
+    }
+
+    public static String sourceTopic(String topic) {
+        if (topic.endsWith(RETRY_SUFFIX)) {
+            return topic.substring(0, topic.length() - RETRY_SUFFIX.length());
+        }
+        if (topic.endsWith(DLT_SUFFIX)) {
+            return topic.substring(0, topic.length() - DLT_SUFFIX.length());
+        }
+        return topic;
+    }
+
+    private boolean isDeserializationFailure(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,30 +1,84 @@
 package com.toiter.postservice.consumer;
 
-import com.toiter.postservice.entity.Post;
 import com.toiter.postservice.model.*;
+import com.toiter.postservice.producer.KafkaProducer;
 import com.toiter.postservice.service.CacheService;
-import com.toiter.postservice.repository.PostRepository;
-import jakarta.validation.constraints.Max;
-import jakarta.validation.constraints.Min;
+import com.toiter.postservice.service.RepostCascadeService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class KafkaConsumer {
+    private static final String POST_EVENTS = "post-events";
+    private static final String LIKE_EVENTS_TOPIC = "like-events-topic";
     private final Logger logger = LoggerFactory.getLogger(KafkaConsumer.class);
     private final CacheService cacheService;
-    private final PostRepository postRepository;
+    private final RepostCascadeService repostCascadeService;
+    private final ViewCountAggregator viewCountAggregator;
+    private final KeyOrderedDispatcher keyOrderedDispatcher;
+    private final EventDeduplicator eventDeduplicator;
+    private final EventLatencyRecorder eventLatencyRecorder;
+    private final KafkaProducer kafkaProducer;
 
-    public KafkaConsumer(CacheService cacheService, PostRepository postRepository) {
+    public KafkaConsumer(CacheService cacheService, RepostCascadeService repostCascadeService, ViewCountAggregator viewCountAggregator, KeyOrderedDispatcher keyOrderedDispatcher, EventDeduplicator eventDeduplicator, EventLatencyRecorder eventLatencyRecorder, KafkaProducer kafkaProducer) {
         this.cacheService = cacheService;
-        this.postRepository = postRepository;
+        this.repostCascadeService = repostCascadeService;
+        this.viewCountAggregator = viewCountAggregator;
+        this.keyOrderedDispatcher = keyOrderedDispatcher;
+        this.eventDeduplicator = eventDeduplicator;
+        this.eventLatencyRecorder = eventLatencyRecorder;
+        this.kafkaProducer = kafkaProducer;
+    }
+
+    @KafkaListener(topics = {"post-created-topic", "post-deleted-topic"}, groupId = "post-event-consumers", containerFactory = "kafkaBatchListenerContainerFactory")
+    private void processPostEvents(List<ConsumerRecord<String, PostEvent>> records) {
+        logger.debug("Received {} post events", records.size());
+        Set<PostEvent> fresh = Collections.newSetFromMap(new IdentityHashMap<>());
+        fresh.addAll(eventDeduplicator.unapplied(POST_EVENTS, records.stream().map(ConsumerRecord::value).toList(), PostEvent::getEventId));
+        keyOrderedDispatcher.dispatchRecords(records, record -> {
+            if (record.value() == null || fresh.contains(record.value())) {
+                applyPostEvent(record.value());
+                eventLatencyRecorder.record(record.topic(), record.timestamp());
+            }
+        });
+    }
+
+    /**
+     * Records that failed on the source topics, retried one at a time with backoff before going to the DLT.
+     */
+    @KafkaListener(topics = {"post-created-topic-retry", "post-deleted-topic-retry"}, groupId = "post-event-consumers", containerFactory = "kafkaListenerContainerFactory")
+    private void retryPostEvent(ConsumerRecord<String, PostEvent> record) {
+        if (!eventDeduplicator.isApplied(POST_EVENTS, record.value().getEventId())) {
+            applyPostEvent(record.value());
+            eventLatencyRecorder.record(FailedRecordRouter.sourceTopic(record.topic()), record.timestamp());
+        }
+    }
+
+    private void applyPostEvent(PostEvent event) {
+        processPostEvent(event);
+        // Events produced before IDs existed have none and can't be marked
+        if (event != null && event.getEventId() != null) {
+            eventDeduplicator.markApplied(List.of(event.getEventId()));
+        }
     }
 
-    @KafkaListener(topics = {"post-created-topic", "post-deleted-topic"}, groupId = "post-event-consumers")
     private void processPostEvent(PostEvent event) {
         logger.debug("Received event: {}", event);
         PostData postData = new PostData(event.getPost());
@@ -36,36 +90,15 @@ public class KafkaConsumer {
                     postData.setRepostsCount(0);
                     postData.setViewCount(0);
                     cacheService.cachePostData(postData);
-
+                    kafkaProducer.sendPostSnapshots(List.of(postData));
                 }
                 incrementReplyRepostCount(postCreatedEvent);
             }
             case PostDeletedEvent postDeletedEvent -> {
                 cacheService.deletePostData(postData);
+                kafkaProducer.sendPostSnapshots(List.of(postData));
                 decrementReplyReposCount(postDeletedEvent);
-                List<Post> reposts = postRepository.findRepostsByRepostParentId(postDeletedEvent.getPost().getId());
-                for (Post repost : reposts) {
-                    if (repost.getContent() == null || repost.getContent().isEmpty()) {
-                        repost.setContent("");
-                        repost.setMediaUrl(null);
-                        repost.setDeletedAt(java.time.LocalDateTime.now());
-                        repost.setDeleted(true);
-                        postRepository.save(repost);
-                        PostData repostData = cacheService.getCachedPostById(repost.getId());
-                        if (repostData != null) {
-                            repostData.setContent("");
-                            repostData.setMediaUrl(null);
-                            repostData.setDeleted(true);
-                            cacheService.cachePostData(repostData);
-                        }
-                    } else {
-                        PostData repostData = cacheService.getCachedPostById(repost.getId());
-                        if (repostData != null) {
-                            repostData.setRepostPostData(null);
-                            cacheService.cachePostData(repostData);
-                        }
-                    }
-                }
+                repostCascadeService.cascadeDelete(postDeletedEvent.getPost().getId());
             }
             default -> throw new IllegalStateException("Unexpected value: " + event);
         }
@@ -78,6 +111,7 @@ public class KafkaConsumer {
             if (parentPostData != null) {
                 parentPostData.setRepliesCount(parentPostData.getRepliesCount() + 1);
                 cacheService.cachePostData(parentPostData);
+                kafkaProducer.sendPostSnapshots(List.of(parentPostData));
             }
         }
         if(event.getPost().getRepostParentId() != null) {
@@ -86,6 +120,7 @@ public class KafkaConsumer {
             if (repostParentData != null) {
                 repostParentData.setRepostsCount(repostParentData.getRepostsCount() + 1);
                 cacheService.cachePostData(repostParentData);
+                kafkaProducer.sendPostSnapshots(List.of(repostParentData));
             }
         }
     }
@@ -98,6 +133,7 @@ public class KafkaConsumer {
             if (parentPostData != null) {
                 parentPostData.setRepliesCount(parentPostData.getRepliesCount() - 1);
                 cacheService.cachePostData(parentPostData);
+                kafkaProducer.sendPostSnapshots(List.of(parentPostData));
             }
         }
         if(event.getPost().getRepostParentId() != null) {
@@ -106,38 +142,87 @@ public class KafkaConsumer {
             if (repostParentData != null) {
                 repostParentData.setRepostsCount(repostParentData.getRepostsCount() - 1);
                 cacheService.cachePostData(repostParentData);
+                kafkaProducer.sendPostSnapshots(List.of(repostParentData));
             }
         }
     }
 
-    @KafkaListener(topics = "like-events-topic", groupId = "like-event-consumers")
-    private void processLikeEvent(LikeEvent event) {
-        logger.debug("Received event: {}", event);
-        switch (event){
-            case PostLikedEvent ignored -> incrementLikeCount(event, 1);
-            case PostUnlikedEvent ignored -> incrementLikeCount(event, -1);
-            default -> throw new IllegalStateException("Unexpected value: " + event);
+    @KafkaListener(topics = "like-events-topic", groupId = "like-event-consumers", containerFactory = "kafkaBatchListenerContainerFactoryForLikedEvent")
+    private void processLikeEvents(List<LikeEvent> events, @Header(KafkaHeaders.RECEIVED_TIMESTAMP) List<Long> timestamps) {
+        logger.debug("Received {} like events", events.size());
+        for (int i = 0; i < events.size(); i++) {
+            LikeEvent event = events.get(i);
+            if (!(event instanceof PostLikedEvent) && !(event instanceof PostUnlikedEvent)) {
+                // Apply the valid prefix so only the bad record and the ones after it are handed to the error handler
+                applyLikeEvents(events.subList(0, i));
+                eventLatencyRecorder.recordAll(LIKE_EVENTS_TOPIC, timestamps.subList(0, i));
+                throw new BatchListenerFailedException("Unexpected like event: " + event, i);
+            }
         }
+        applyLikeEvents(events);
+        eventLatencyRecorder.recordAll(LIKE_EVENTS_TOPIC, timestamps);
+    }
+
+    @KafkaListener(topics = "like-events-topic-retry", groupId = "like-event-consumers", containerFactory = "kafkaListenerContainerFactoryForLikedEvent")
+    private void retryLikeEvent(ConsumerRecord<String, LikeEvent> record) {
+        applyLikeEvents(List.of(record.value()));
+        eventLatencyRecorder.record(LIKE_EVENTS_TOPIC, record.timestamp());
     }
 
-    private void incrementLikeCount(LikeEvent event, @Min(-1) @Max(1) int increment) {
-        logger.debug("Incrementing like count for post: {}", event.toString());
-        PostData postData = cacheService.getCachedPostById(event.getPostId());
-        if (postData != null) {
-            postData.setLikesCount(postData.getLikesCount() + increment);
-            cacheService.cachePostData(postData);
-            logger.debug("Like count incremented for post: {}, likes: {}", event.getPostId(), postData.getLikesCount());
+    private void applyLikeEvents(List<LikeEvent> received) {
+        List<LikeEvent> events = received.isEmpty() ? received : eventDeduplicator.unapplied(LIKE_EVENTS_TOPIC, received, LikeEvent::getEventId);
+        if (events.isEmpty()) {
+            return;
         }
-        cacheService.setLikeStatus(event.getUserId(), event.getPostId(), increment == 1);
+        Map<Long, Integer> deltas = new HashMap<>();
+        Map<String, LikeStatus> statuses = new LinkedHashMap<>();
+        for (LikeEvent event : events) {
+            int increment = switch (event) {
+                case PostLikedEvent ignored -> 1;
+                case PostUnlikedEvent ignored -> -1;
+                default -> throw new IllegalStateException("Unexpected value: " + event);
+            };
+            deltas.merge(event.getPostId(), increment, Integer::sum);
+            // Later events in the poll win, so a like followed by an unlike leaves the status as unliked
+            statuses.put(event.getUserId() + ":" + event.getPostId(), new LikeStatus(event.getUserId(), event.getPostId(), increment == 1));
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+
+        applyLikeDeltas(deltas);
+        cacheService.setLikeStatuses(statuses.values());
+        eventDeduplicator.markApplied(events.stream().map(LikeEvent::getEventId).toList());
     }
 
-    @KafkaListener(topics = "post-viewed-topic", groupId = "view-event-consumers")
-    private void processViewEvent(PostViewedEvent event) {
-        logger.debug("Received event: {}", event);
-        PostData postData = cacheService.getCachedPostById(event.getPostId());
-        if (postData != null) {
-            postData.setViewCount(postData.getViewCount() + 1);
-            cacheService.cachePostData(postData);
+    private void applyLikeDeltas(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Long, PostData> cachedPosts = cacheService.getCachedPostsByIds(deltas.keySet());
+        for (PostData postData : cachedPosts.values()) {
+            postData.setLikesCount(postData.getLikesCount() + deltas.get(postData.getId()));
+        }
+        cacheService.cachePostDataBatch(cachedPosts.values());
+        kafkaProducer.sendPostSnapshots(cachedPosts.values());
+        logger.debug("Like counts updated for {} posts ({} cached)", deltas.size(), cachedPosts.size());
+    }
+
+    @KafkaListener(topics = "post-viewed-topic", groupId = "view-event-consumers", containerFactory = "kafkaBatchListenerContainerFactoryForPostViewedEvent")
+    private void processViewEvents(List<PostViewedEvent> events, @Header(KafkaHeaders.RECEIVED_TIMESTAMP) List<Long> timestamps, Acknowledgment acknowledgment) {
+        logger.debug("Received {} view events", events.size());
+        // Views are only counted, an undeserializable one is dropped rather than sent to a dead letter topic
+        Map<PostViewedEvent, Long> readable = new IdentityHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (events.get(i) != null) {
+                readable.put(events.get(i), timestamps.get(i));
+            }
+        }
+        if (readable.size() < events.size()) {
+            logger.warn("Skipped {} unreadable view events", events.size() - readable.size());
         }
+        List<PostViewedEvent> fresh = readable.isEmpty() ? List.of()
+                : eventDeduplicator.unapplied("post-viewed-topic", events.stream().filter(Objects::nonNull).toList(), PostViewedEvent::getEventId);
+        viewCountAggregator.add(fresh.stream().map(PostViewedEvent::getPostId).toList(),
+                fresh.stream().map(PostViewedEvent::getEventId).toList(),
+                fresh.stream().map(readable::get).toList(), acknowledgment);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package com.toiter.postservice.consumer;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Processes the records of a poll grouped by key. Records sharing a key run sequentially in offset order, while
+ * different keys run concurrently on virtual threads when parallel mode is enabled.
+ * <p>
+ * If any record fails, a {@link BatchListenerFailedException} is thrown pointing at the first record of the batch
+ * that was not processed, so the container only commits the fully processed prefix and redelivers the rest.
+ */
+@Component
+public class KeyOrderedDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(KeyOrderedDispatcher.class);
+
+    private final boolean parallel;
+    private final Semaphore inFlight;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public KeyOrderedDispatcher(@Value("${kafka.consumer.post-events.parallel.enabled:false}") boolean parallel,
+                                @Value("${kafka.consumer.post-events.parallel.max-in-flight:64}") int maxInFlight) {
+        this.parallel = parallel;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    public <V> void dispatch(List<ConsumerRecord<String, V>> records, Consumer<V> handler) {
+        dispatchRecords(records, record -> handler.accept(record.value()));
+    }
+
+    public <V> void dispatchRecords(List<ConsumerRecord<String, V>> records, Consumer<ConsumerRecord<String, V>> handler) {
+        AtomicReferenceArray<Boolean> processed = new AtomicReferenceArray<>(records.size());
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        if (parallel && records.size() > 1) {
+            Map<String, List<Integer>> indexesByKey = new LinkedHashMap<>();
+            for (int i = 0; i < records.size(); i++) {
+                indexesByKey.computeIfAbsent(records.get(i).key(), key -> new ArrayList<>()).add(i);
+            }
+            List<Future<?>> futures = new ArrayList<>(indexesByKey.size());
+            for (List<Integer> indexes : indexesByKey.values()) {
+                futures.add(executor.submit(() -> runWithPermit(() -> process(records, indexes, handler, processed, failure))));
+            }
+            awaitAll(futures, failure);
+        } else {
+            List<Integer> indexes = new ArrayList<>(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                indexes.add(i);
+            }
+            process(records, indexes, handler, processed, failure);
+        }
+
+        for (int i = 0; i < records.size(); i++) {
+            if (processed.get(i) == null) {
+                throw new BatchListenerFailedException("Failed to process record of key " + records.get(i).key(), failure.get(), i);
+            }
+        }
+    }
+
+    private <V> void process(List<ConsumerRecord<String, V>> records, List<Integer> indexes, Consumer<ConsumerRecord<String, V>> handler,
+                             AtomicReferenceArray<Boolean> processed, AtomicReference<Exception> failure) {
+        for (int index : indexes) {
+            ConsumerRecord<String, V> record = records.get(index);
+            try {
+                handler.accept(record);
+                processed.set(index, Boolean.TRUE);
+            } catch (Exception e) {
+                logger.error("Failed to process record {}-{}@{} with key {}", record.topic(), record.partition(), record.offset(), record.key(), e);
+                failure.compareAndSet(null, e);
+                // Later records of this key must not run before the failed one, stop here
+                return;
+            }
+        }
+    }
+
+    private void runWithPermit(Runnable task) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            task.run();
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void awaitAll(List<Future<?>> futures, AtomicReference<Exception> failure) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+                return;
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
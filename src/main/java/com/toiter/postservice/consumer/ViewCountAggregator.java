@@ -0,0 +1,185 @@
+package com.toiter.postservice.consumer;
+
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.service.CacheService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Accumulates view deltas per post in memory and writes them to the cache in one pipelined batch, either on a
+ * fixed interval or once enough views are pending. Kafka acknowledgments are held back until the views they
+ * carry have been flushed, so offsets are never committed ahead of the cache.
+ * <p>
+ * Listener threads only take the shared side of {@link #swapLock} and bump a {@link LongAdder}, so they never
+ * contend with each other. The exclusive side is held just long enough to swap the pending map during a flush.
+ */
+@Component
+public class ViewCountAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(ViewCountAggregator.class);
+
+    private final CacheService cacheService;
+    private final EventDeduplicator eventDeduplicator;
+    private final EventLatencyRecorder eventLatencyRecorder;
+    private final KafkaProducer kafkaProducer;
+    private final long flushThreshold;
+    private final Duration dedupWindow;
+
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ConcurrentHashMap<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+    private Deque<Acknowledgment> pendingAcks = new ArrayDeque<>();
+    private List<UUID> pendingEventIds = new ArrayList<>();
+    private List<Long> pendingTimestamps = new ArrayList<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+
+    public ViewCountAggregator(CacheService cacheService, EventDeduplicator eventDeduplicator, EventLatencyRecorder eventLatencyRecorder,
+                               KafkaProducer kafkaProducer,
+                               @Value("${kafka.consumer.view-events.flush-threshold:5000}") long flushThreshold,
+                               @Value("${kafka.consumer.view-events.dedup-window:PT5M}") Duration dedupWindow) {
+        this.cacheService = cacheService;
+        this.eventDeduplicator = eventDeduplicator;
+        this.eventLatencyRecorder = eventLatencyRecorder;
+        this.kafkaProducer = kafkaProducer;
+        this.flushThreshold = flushThreshold;
+        this.dedupWindow = dedupWindow;
+    }
+
+    public void add(List<Long> postIds, Acknowledgment acknowledgment) {
+        add(postIds, List.of(), List.of(), acknowledgment);
+    }
+
+    /**
+     * Adds the views of a batch. Once the views have been flushed their event IDs are marked as applied, their
+     * latency from the produce timestamps is recorded and the batch is acknowledged.
+     */
+    public void add(List<Long> postIds, List<UUID> eventIds, List<Long> timestamps, Acknowledgment acknowledgment) {
+        swapLock.readLock().lock();
+        try {
+            for (Long postId : postIds) {
+                pendingViews.computeIfAbsent(postId, id -> new LongAdder()).increment();
+            }
+            if (acknowledgment != null || !eventIds.isEmpty() || !timestamps.isEmpty()) {
+                synchronized (this) {
+                    if (acknowledgment != null) {
+                        pendingAcks.addLast(acknowledgment);
+                    }
+                    pendingEventIds.addAll(eventIds);
+                    pendingTimestamps.addAll(timestamps);
+                }
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        if (pendingCount.addAndGet(postIds.size()) >= flushThreshold) {
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.consumer.view-events.flush-interval-ms:1000}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            Map<Long, LongAdder> views;
+            Deque<Acknowledgment> acks;
+            List<UUID> eventIds;
+            List<Long> timestamps;
+            swapLock.writeLock().lock();
+            try {
+                if (pendingViews.isEmpty() && pendingAcks.isEmpty()) {
+                    return;
+                }
+                views = pendingViews;
+                pendingViews = new ConcurrentHashMap<>();
+                synchronized (this) {
+                    acks = pendingAcks;
+                    pendingAcks = new ArrayDeque<>();
+                    eventIds = pendingEventIds;
+                    pendingEventIds = new ArrayList<>();
+                    timestamps = pendingTimestamps;
+                    pendingTimestamps = new ArrayList<>();
+                }
+                pendingCount.set(0);
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            Map<Long, Long> deltas = new HashMap<>();
+            views.forEach((postId, adder) -> deltas.put(postId, adder.sum()));
+            try {
+                applyDeltas(deltas);
+            } catch (RuntimeException e) {
+                logger.error("Failed to flush {} view deltas, keeping them for the next flush", deltas.size(), e);
+                restore(deltas, acks, eventIds, timestamps);
+                return;
+            }
+            eventLatencyRecorder.recordAll("post-viewed-topic", timestamps);
+            try {
+                // Every view is an event, so IDs are only kept long enough to catch redeliveries after a rebalance
+                eventDeduplicator.markApplied(eventIds, dedupWindow);
+            } catch (RuntimeException e) {
+                // The views are already in the cache, restoring them would count them twice
+                logger.warn("Failed to mark {} view events as applied", eventIds.size(), e);
+            }
+            acks.forEach(Acknowledgment::acknowledge);
+            logger.debug("Flushed view deltas for {} posts and acknowledged {} batches", deltas.size(), acks.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void applyDeltas(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Long, PostData> cachedPosts = cacheService.getCachedPostsByIds(deltas.keySet());
+        List<PostData> updated = new ArrayList<>(cachedPosts.size());
+        for (PostData postData : cachedPosts.values()) {
+            postData.setViewCount(postData.getViewCount() + deltas.get(postData.getId()).intValue());
+            updated.add(postData);
+        }
+        cacheService.cachePostDataBatch(updated);
+        kafkaProducer.sendPostSnapshots(updated);
+    }
+
+    private void restore(Map<Long, Long> deltas, Deque<Acknowledgment> acks, List<UUID> eventIds, List<Long> timestamps) {
+        swapLock.readLock().lock();
+        try {
+            deltas.forEach((postId, delta) -> pendingViews.computeIfAbsent(postId, id -> new LongAdder()).add(delta));
+            synchronized (this) {
+                // Older acknowledgments go back in front so offsets are still committed in order
+                acks.descendingIterator().forEachRemaining(pendingAcks::addFirst);
+                pendingEventIds.addAll(eventIds);
+                pendingTimestamps.addAll(timestamps);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+}
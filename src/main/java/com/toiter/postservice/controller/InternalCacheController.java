@@ -0,0 +1,56 @@
+package com.toiter.postservice.controller;
+
+import com.toiter.postservice.model.CacheRebuildProgress;
+import com.toiter.postservice.service.PostSnapshotBackfillService;
+import com.toiter.postservice.service.PostSnapshotRebuildService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/internal/cache")
+public class InternalCacheController {
+
+    private static final Logger logger = LoggerFactory.getLogger(InternalCacheController.class);
+
+    private final PostSnapshotRebuildService postSnapshotRebuildService;
+    private final PostSnapshotBackfillService postSnapshotBackfillService;
+
+    public InternalCacheController(PostSnapshotRebuildService postSnapshotRebuildService,
+                                   PostSnapshotBackfillService postSnapshotBackfillService) {
+        this.postSnapshotRebuildService = postSnapshotRebuildService;
+        this.postSnapshotBackfillService = postSnapshotBackfillService;
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<CacheRebuildProgress> rebuild() {
+        try {
+            logger.info("Starting post cache rebuild from snapshots");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(postSnapshotRebuildService.start());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(postSnapshotRebuildService.progress());
+        }
+    }
+
+    @GetMapping("/rebuild")
+    public CacheRebuildProgress rebuildProgress() {
+        return postSnapshotRebuildService.progress();
+    }
+
+    @PostMapping("/snapshots/backfill")
+    public ResponseEntity<CacheRebuildProgress> backfillSnapshots() {
+        try {
+            logger.info("Starting post snapshot backfill");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(postSnapshotBackfillService.start());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(postSnapshotBackfillService.progress());
+        }
+    }
+
+    @GetMapping("/snapshots/backfill")
+    public CacheRebuildProgress backfillProgress() {
+        return postSnapshotBackfillService.progress();
+    }
+}
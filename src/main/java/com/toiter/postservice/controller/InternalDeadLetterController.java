@@ -0,0 +1,25 @@
+package com.toiter.postservice.controller;
+
+import com.toiter.postservice.service.DeadLetterReplayService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/internal/dead-letters")
+public class InternalDeadLetterController {
+
+    private static final Logger logger = LoggerFactory.getLogger(InternalDeadLetterController.class);
+
+    private final DeadLetterReplayService deadLetterReplayService;
+
+    public InternalDeadLetterController(DeadLetterReplayService deadLetterReplayService) {
+        this.deadLetterReplayService = deadLetterReplayService;
+    }
+
+    @PostMapping("/{topic}/replay")
+    public Integer replay(@PathVariable String topic, @RequestParam(defaultValue = "100") int max) {
+        logger.info("Replaying up to {} dead letters of topic {}", max, topic);
+        return deadLetterReplayService.replay(topic, max);
+    }
+}
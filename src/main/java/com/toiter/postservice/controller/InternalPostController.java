@@ -4,9 +4,14 @@ import com.toiter.postservice.service.PostService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/internal/posts")
 public class InternalPostController {
@@ -24,4 +29,13 @@ public class InternalPostController {
         logger.debug("Fetching posts count for user ID: {}", userId);
         return postService.getPostsCount(userId);
     }
+
+    /**
+     * Post counts of many users in one call, keyed by user ID. Users without posts are returned with 0.
+     */
+    @PostMapping("/count/batch")
+    public Map<Long, Integer> getPostsCounts(@RequestBody List<Long> userIds) {
+        logger.debug("Fetching posts counts for {} user IDs", userIds == null ? 0 : userIds.size());
+        return postService.getPostsCounts(userIds);
+    }
 }
@@ -35,6 +35,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -380,4 +381,26 @@ public class PostController {
         postService.viewPost(id, userId);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "registra a visualização de vários posts de uma vez",
+            security = {@SecurityRequirement(name = "bearerAuth")}
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Posts visualizados",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Lista vazia, com IDs inválidos ou com mais de 100 IDs",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Não autorizado",
+                    content = @Content)
+    })
+    @PostMapping("/views")
+    public ResponseEntity<Void> viewPosts(
+            @RequestBody List<Long> postIds,
+            Authentication authentication) {
+        logger.debug("viewPosts called with {} IDs", postIds == null ? 0 : postIds.size());
+        Long userId = jwtService.getUserIdFromAuthentication(authentication);
+
+        postService.viewPosts(postIds, userId);
+        return ResponseEntity.noContent().build();
+    }
+}
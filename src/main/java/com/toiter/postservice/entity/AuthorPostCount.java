@@ -0,0 +1,29 @@
+package com.toiter.postservice.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Number of top-level, non-deleted posts that are not reposts, per author.
+ */
+@Entity
+@Table(name = "author_post_counts", schema = "pst")
+public class AuthorPostCount {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "posts", nullable = false)
+    private Long posts;
+
+    public AuthorPostCount() {
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getPosts() {
+        return posts;
+    }
+}
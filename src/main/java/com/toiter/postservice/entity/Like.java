@@ -9,7 +9,8 @@ import java.time.LocalDateTime;
 public class Like {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "like_id_seq")
+    @SequenceGenerator(name = "like_id_seq", schema = "pst", sequenceName = "like_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "post_id", nullable = false)
@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 public class Post {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posts_id_seq")
+    @SequenceGenerator(name = "posts_id_seq", schema = "pst", sequenceName = "posts_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "parent_post_id")
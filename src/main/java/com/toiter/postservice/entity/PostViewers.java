@@ -0,0 +1,60 @@
+package com.toiter.postservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last persisted unique viewer estimate of a post, with the HyperLogLog it was taken from and the views the post
+ * had in rows mode before the switch.
+ */
+@Entity
+@Table(name = "post_viewers", schema = "pst")
+public class PostViewers {
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(name = "viewers", nullable = false)
+    private Long viewers;
+
+    @Column(name = "registers", nullable = false)
+    private byte[] registers;
+
+    @Column(name = "baseline", nullable = false)
+    private long baseline;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public PostViewers() {
+    }
+
+    public PostViewers(Long postId, Long viewers, byte[] registers) {
+        this.postId = postId;
+        this.viewers = viewers;
+        this.registers = registers;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public Long getViewers() {
+        return viewers;
+    }
+
+    public byte[] getRegisters() {
+        return registers;
+    }
+
+    public long getBaseline() {
+        return baseline;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
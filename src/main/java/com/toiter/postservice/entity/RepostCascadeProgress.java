@@ -0,0 +1,44 @@
+package com.toiter.postservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resume point of the repost cascade of a deleted post: the highest repost ID already handled.
+ */
+@Entity
+@Table(name = "repost_cascade", schema = "pst")
+public class RepostCascadeProgress {
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(name = "last_repost_id", nullable = false)
+    private Long lastRepostId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public RepostCascadeProgress() {
+    }
+
+    public RepostCascadeProgress(Long postId, Long lastRepostId) {
+        this.postId = postId;
+        this.lastRepostId = lastRepostId;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public Long getLastRepostId() {
+        return lastRepostId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -9,7 +9,8 @@ import java.time.LocalDateTime;
 public class View {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "view_id_seq")
+    @SequenceGenerator(name = "view_id_seq", schema = "pst", sequenceName = "view_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "post_id", nullable = false)
@@ -0,0 +1,29 @@
+package com.toiter.postservice.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Views of a post rolled up from {@code pst.view} partitions that have since been detached.
+ */
+@Entity
+@Table(name = "view_counts", schema = "pst")
+public class ViewCount {
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(name = "views", nullable = false)
+    private Long views;
+
+    public ViewCount() {
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public Long getViews() {
+        return views;
+    }
+}
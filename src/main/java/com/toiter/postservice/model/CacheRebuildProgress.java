@@ -0,0 +1,15 @@
+package com.toiter.postservice.model;
+
+import java.time.Instant;
+
+public record CacheRebuildProgress(State state, long totalRecords, long recordsRead, long postsWritten,
+                                   Instant startedAt, Instant finishedAt, String error) {
+
+    public enum State {
+        IDLE, RUNNING, COMPLETED, FAILED
+    }
+
+    public static CacheRebuildProgress idle() {
+        return new CacheRebuildProgress(State.IDLE, 0, 0, 0, null, null, null);
+    }
+}
@@ -1,6 +1,9 @@
 package com.toiter.postservice.model;
 
+import java.util.UUID;
+
 public interface LikeEvent {
+    UUID getEventId();
     Long getPostId();
     Long getUserId();
-}
+}
\ No newline at end of file
@@ -0,0 +1,4 @@
+package com.toiter.postservice.model;
+
+public record LikeStatus(Long userId, Long postId, boolean liked) {
+}
@@ -0,0 +1,107 @@
+package com.toiter.postservice.model;
+
+/**
+ * Per-post counters kept by the Kafka Streams counter topology. The same type is used for the deltas derived
+ * from post events and for the aggregated value stored in the state store.
+ */
+public class PostCounters {
+    private long likes;
+    private long replies;
+    private long reposts;
+    private long views;
+    private boolean created;
+    private boolean deleted;
+
+    public PostCounters() {
+    }
+
+    public PostCounters addLikes(long delta) {
+        this.likes += delta;
+        return this;
+    }
+
+    public PostCounters addReplies(long delta) {
+        this.replies += delta;
+        return this;
+    }
+
+    public PostCounters addReposts(long delta) {
+        this.reposts += delta;
+        return this;
+    }
+
+    public PostCounters addViews(long delta) {
+        this.views += delta;
+        return this;
+    }
+
+    public PostCounters add(PostCounters delta) {
+        this.likes += delta.likes;
+        this.replies += delta.replies;
+        this.reposts += delta.reposts;
+        this.views += delta.views;
+        this.created |= delta.created;
+        this.deleted |= delta.deleted;
+        return this;
+    }
+
+    public long getLikes() {
+        return likes;
+    }
+
+    public void setLikes(long likes) {
+        this.likes = likes;
+    }
+
+    public long getReplies() {
+        return replies;
+    }
+
+    public void setReplies(long replies) {
+        this.replies = replies;
+    }
+
+    public long getReposts() {
+        return reposts;
+    }
+
+    public void setReposts(long reposts) {
+        this.reposts = reposts;
+    }
+
+    public long getViews() {
+        return views;
+    }
+
+    public void setViews(long views) {
+        this.views = views;
+    }
+
+    public boolean isCreated() {
+        return created;
+    }
+
+    public void setCreated(boolean created) {
+        this.created = created;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "PostCounters{" +
+                "likes=" + likes +
+                ", replies=" + replies +
+                ", reposts=" + reposts +
+                ", views=" + views +
+                ", created=" + created +
+                ", deleted=" + deleted +
+                '}';
+    }
+}
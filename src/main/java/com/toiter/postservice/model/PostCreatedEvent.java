@@ -2,17 +2,35 @@ package com.toiter.postservice.model;
 
 import com.toiter.postservice.entity.Post;
 
+import java.util.UUID;
+
 public class PostCreatedEvent implements PostEvent {
 
+    private UUID eventId;
     private Post post;
 
     public PostCreatedEvent(Post post) {
+        this.eventId = UUID.randomUUID();
+        this.post = post;
+    }
+
+    public PostCreatedEvent(UUID eventId, Post post) {
+        this.eventId = eventId;
         this.post = post;
     }
 
     public PostCreatedEvent() {
     }
 
+    @Override
+    public UUID getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(UUID eventId) {
+        this.eventId = eventId;
+    }
+
     @Override
     public Post getPost() {
         return post;
@@ -25,7 +43,8 @@ public class PostCreatedEvent implements PostEvent {
     @Override
     public String toString() {
         return "PostCreatedEvent{" +
-                "post=" + post +
+                "eventId=" + eventId +
+                ", post=" + post +
                 '}';
     }
 }
\ No newline at end of file
@@ -2,17 +2,35 @@ package com.toiter.postservice.model;
 
 import com.toiter.postservice.entity.Post;
 
+import java.util.UUID;
+
 public class PostDeletedEvent implements PostEvent {
 
+    private UUID eventId;
     private Post post;
 
     public PostDeletedEvent(Post post) {
+        this.eventId = UUID.randomUUID();
+        this.post = post;
+    }
+
+    public PostDeletedEvent(UUID eventId, Post post) {
+        this.eventId = eventId;
         this.post = post;
     }
 
     public PostDeletedEvent() {
     }
 
+    @Override
+    public UUID getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(UUID eventId) {
+        this.eventId = eventId;
+    }
+
     @Override
     public Post getPost() {
         return post;
@@ -25,7 +43,8 @@ public class PostDeletedEvent implements PostEvent {
     @Override
     public String toString() {
         return "PostDeletedEvent{" +
-                "post=" + post +
+                "eventId=" + eventId +
+                ", post=" + post +
                 '}';
     }
 }
\ No newline at end of file
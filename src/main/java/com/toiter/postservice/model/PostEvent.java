@@ -2,8 +2,15 @@ package com.toiter.postservice.model;
 
 import com.toiter.postservice.entity.Post;
 
+import java.util.UUID;
+
 public interface PostEvent {
+    /**
+     * Unique ID of the event, kept across redeliveries so consumers can skip events already applied.
+     */
+    UUID getEventId();
+
     Post getPost();
 
     String toString();
-}
\ No newline at end of file
+}
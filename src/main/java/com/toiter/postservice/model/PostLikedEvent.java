@@ -1,6 +1,9 @@
 package com.toiter.postservice.model;
 
+import java.util.UUID;
+
 public class PostLikedEvent implements LikeEvent {
+    private UUID eventId;
     private Long postId;
     private Long userId;
 
@@ -8,10 +11,23 @@ public class PostLikedEvent implements LikeEvent {
     }
 
     public PostLikedEvent(Long postId, Long userId) {
+        this(UUID.randomUUID(), postId, userId);
+    }
+
+    public PostLikedEvent(UUID eventId, Long postId, Long userId) {
+        this.eventId = eventId;
         this.postId = postId;
         this.userId = userId;
     }
 
+    public UUID getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(UUID eventId) {
+        this.eventId = eventId;
+    }
+
     public Long getPostId() {
         return postId;
     }
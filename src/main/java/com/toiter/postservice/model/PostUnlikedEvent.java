@@ -1,6 +1,9 @@
 package com.toiter.postservice.model;
 
+import java.util.UUID;
+
 public class PostUnlikedEvent implements LikeEvent {
+    private UUID eventId;
     private Long postId;
     private Long userId;
 
@@ -8,10 +11,23 @@ public class PostUnlikedEvent implements LikeEvent {
     }
 
     public PostUnlikedEvent(Long postId, Long userId) {
+        this(UUID.randomUUID(), postId, userId);
+    }
+
+    public PostUnlikedEvent(UUID eventId, Long postId, Long userId) {
+        this.eventId = eventId;
         this.postId = postId;
         this.userId = userId;
     }
 
+    public UUID getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(UUID eventId) {
+        this.eventId = eventId;
+    }
+
     public Long getPostId() {
         return postId;
     }
@@ -0,0 +1,4 @@
+package com.toiter.postservice.model;
+
+public record PostView(Long userId, Long postId) {
+}
@@ -1,46 +1,111 @@
 package com.toiter.postservice.producer;
 
 import com.toiter.postservice.model.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.KafkaException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Service
 public class KafkaProducer {
+    public static final String POST_SNAPSHOTS_TOPIC = "post-snapshots-topic";
+
+    private final Logger logger = LoggerFactory.getLogger(KafkaProducer.class);
     private final KafkaTemplate<String, PostEvent> kafkaTemplate;
     private final KafkaTemplate<String, PostViewedEvent> kafkaTemplateForPostViewedEvent;
     private final KafkaTemplate<String, LikeEvent> kafkaTemplateForLikedEvent;
+    private final KafkaTemplate<String, PostData> kafkaTemplateForPostSnapshot;
+    private final MeterRegistry meterRegistry;
+    private final long postEventsDeliveryTimeoutMs;
 
-    public KafkaProducer(KafkaTemplate<String, PostEvent> kafkaTemplate, KafkaTemplate<String, PostViewedEvent> kafkaTemplateForPostViewedEvent, KafkaTemplate<String, LikeEvent> kafkaTemplateForLikedEvent) {
+    public KafkaProducer(KafkaTemplate<String, PostEvent> kafkaTemplate, KafkaTemplate<String, PostViewedEvent> kafkaTemplateForPostViewedEvent, KafkaTemplate<String, LikeEvent> kafkaTemplateForLikedEvent, KafkaTemplate<String, PostData> kafkaTemplateForPostSnapshot, MeterRegistry meterRegistry,
+                         @Value("${kafka.producer.post-events.delivery-timeout-ms:30000}") long postEventsDeliveryTimeoutMs) {
         this.kafkaTemplate = kafkaTemplate;
         this.kafkaTemplateForPostViewedEvent = kafkaTemplateForPostViewedEvent;
         this.kafkaTemplateForLikedEvent = kafkaTemplateForLikedEvent;
+        this.kafkaTemplateForPostSnapshot = kafkaTemplateForPostSnapshot;
+        this.meterRegistry = meterRegistry;
+        this.postEventsDeliveryTimeoutMs = postEventsDeliveryTimeoutMs;
     }
 
-    public void sendPostCreatedEvent(PostEvent event) {
-        kafkaTemplate.executeInTransaction(operations -> {
-            operations.send("post-created-topic", event);
-            return true;
-        });
-    }
-
-    public void sendPostDeletedEvent(PostEvent event) {
-        kafkaTemplate.executeInTransaction(operations -> {
-            operations.send("post-deleted-topic", event);
-            return true;
-        });
+    /**
+     * Sends the records in order and returns once the broker has acknowledged all of them. If any send fails the
+     * whole batch is reported as failed and sent again later; consumers skip the records already delivered.
+     * <p>
+     * Waits at most the producer's {@code delivery.timeout.ms}, after which the producer gives up on the records
+     * anyway, so a caller holding database locks never waits on an unreachable broker indefinitely.
+     */
+    public void sendPostEvents(List<ProducerRecord<String, PostEvent>> records) {
+        CompletableFuture<?>[] sends = records.stream().map(kafkaTemplate::send).toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(sends).get(postEventsDeliveryTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new KafkaException("Failed to send " + records.size() + " post events", e.getCause());
+        } catch (TimeoutException e) {
+            throw new KafkaException("Timed out after " + postEventsDeliveryTimeoutMs + " ms sending " + records.size() + " post events", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while sending " + records.size() + " post events", e);
+        }
     }
 
     public void sendLikedEvent(LikeEvent event) {
-        kafkaTemplateForLikedEvent.executeInTransaction(operations -> {
-            operations.send("like-events-topic", event);
-            return true;
-        });
+        sendTelemetry(kafkaTemplateForLikedEvent, "like-events-topic", event.getPostId(), event);
     }
 
     public void sendPostViewedEvent(PostViewedEvent event) {
-        kafkaTemplateForPostViewedEvent.executeInTransaction(operations -> {
-            operations.send("post-viewed-topic", event);
-            return true;
-        });
+        sendTelemetry(kafkaTemplateForPostViewedEvent, "post-viewed-topic", event.getPostId(), event);
+    }
+
+    /**
+     * Publishes the cached state of each post to the compacted snapshot topic, from which the cache can be rebuilt
+     * without querying the database.
+     */
+    public void sendPostSnapshots(Collection<PostData> posts) {
+        for (PostData post : posts) {
+            sendTelemetry(kafkaTemplateForPostSnapshot, POST_SNAPSHOTS_TOPIC, post.getId(), post);
+        }
+    }
+
+    /**
+     * Fire-and-forget send for high-volume events. The caller never waits for the broker; the outcome is only
+     * reported through the {@code kafka.producer.sends} counter and the log.
+     */
+    private <T> void sendTelemetry(KafkaTemplate<String, T> template, String topic, Long postId, T event) {
+        try {
+            template.send(topic, postKey(postId), event).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    logger.error("Failed to send event to topic {}: {}", topic, event, ex);
+                    countSend(topic, "error");
+                } else {
+                    countSend(topic, "success");
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("Failed to enqueue event for topic {}: {}", topic, event, e);
+            countSend(topic, "error");
+        }
+    }
+
+    /**
+     * Every event is keyed by the post it refers to, so all events of a post land on the same partition in order.
+     */
+    public static String postKey(Long postId) {
+        return String.valueOf(postId);
+    }
+
+    private void countSend(String topic, String outcome) {
+        meterRegistry.counter("kafka.producer.sends", "topic", topic, "outcome", outcome).increment();
     }
 }
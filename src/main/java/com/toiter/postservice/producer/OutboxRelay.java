@@ -0,0 +1,82 @@
+package com.toiter.postservice.producer;
+
+import com.toiter.postservice.service.OutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains {@code pst.outbox} into Kafka. Exposes {@code outbox.relay.lag.seconds}, the age of the oldest event
+ * still waiting to be published.
+ */
+@Component
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxService outboxService;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration retention;
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter publishedCounter;
+
+    public OutboxRelay(OutboxService outboxService,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${outbox.relay.max-batches-per-run:10}") int maxBatchesPerRun,
+                       @Value("${outbox.relay.retention-hours:24}") long retentionHours) {
+        this.outboxService = outboxService;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.retention = Duration.ofHours(retentionHours);
+        this.publishedCounter = meterRegistry.counter("outbox.relay.published");
+        Gauge.builder("outbox.relay.lag.seconds", lagMillis, millis -> millis.get() / 1000.0)
+                .description("Age of the oldest outbox event not yet published")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}")
+    public void relay() {
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                int published = outboxService.publishPending(batchSize);
+                publishedCounter.increment(published);
+                if (published < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to relay outbox events, will retry", e);
+        } finally {
+            updateLag();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.purge-interval-ms:3600000}")
+    public void purge() {
+        try {
+            int deleted = outboxService.purgePublishedBefore(LocalDateTime.now().minus(retention));
+            logger.debug("Purged {} published outbox events", deleted);
+        } catch (RuntimeException e) {
+            logger.error("Failed to purge published outbox events", e);
+        }
+    }
+
+    private void updateLag() {
+        try {
+            LocalDateTime oldest = outboxService.getOldestPendingCreatedAt();
+            lagMillis.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis()));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to compute outbox lag: {}", e.getMessage());
+        }
+    }
+}
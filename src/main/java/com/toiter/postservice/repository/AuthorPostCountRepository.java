@@ -0,0 +1,37 @@
+package com.toiter.postservice.repository;
+
+import com.toiter.postservice.entity.AuthorPostCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AuthorPostCountRepository extends JpaRepository<AuthorPostCount, Long> {
+
+    /**
+     * Adds {@code delta} to the author's count, creating the row on the author's first post.
+     *
+     * @return the author's count after the change
+     */
+    @Transactional
+    @Query(value = """
+        INSERT INTO pst.author_post_counts (user_id, posts)
+        VALUES (:userId, GREATEST(:delta, 0))
+        ON CONFLICT (user_id) DO UPDATE
+        SET posts = GREATEST(pst.author_post_counts.posts + :delta, 0)
+        RETURNING posts
+    """, nativeQuery = true)
+    long add(Long userId, long delta);
+
+    /**
+     * Same as {@code findAllById}, but not read-only, so it is routed to the primary instead of a replica that may
+     * not have the latest counts yet.
+     */
+    @Transactional
+    @Query("SELECT c FROM AuthorPostCount c WHERE c.userId IN :userIds")
+    List<AuthorPostCount> findAllOnPrimary(Collection<Long> userIds);
+}
@@ -2,9 +2,33 @@ package com.toiter.postservice.repository;
 
 import com.toiter.postservice.entity.Like;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface LikeRepository extends JpaRepository<Like, Long> {
-    void deleteByPostIdAndUserId(Long postId, Long userId);
+import java.util.Optional;
 
+public interface LikeRepository extends JpaRepository<Like, Long> {
+    @Transactional(readOnly = true)
     boolean existsByUserIdAndPostId(Long userId, Long postId);
+
+    /**
+     * Likes the post in one statement.
+     *
+     * @return the ID of the new like, empty if the user already liked the post
+     */
+    @Query(value = """
+        INSERT INTO pst.like (user_id, post_id)
+        VALUES (:userId, :postId)
+        ON CONFLICT (user_id, post_id) DO NOTHING
+        RETURNING id
+    """, nativeQuery = true)
+    Optional<Long> insertIfAbsent(Long postId, Long userId);
+
+    /**
+     * Removes the like in one statement.
+     *
+     * @return the ID of the removed like, empty if the user had not liked the post
+     */
+    @Query(value = "DELETE FROM pst.like WHERE user_id = :userId AND post_id = :postId RETURNING id", nativeQuery = true)
+    Optional<Long> deleteReturningId(Long postId, Long userId);
 }
@@ -0,0 +1,41 @@
+package com.toiter.postservice.repository;
+
+import com.toiter.postservice.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Locks the oldest pending rows that no other relay holds. Only the oldest pending row of each post is eligible,
+     * so two relays never publish events of the same post out of order; later ones follow in the next batch.
+     */
+    @Query(value = """
+        SELECT * FROM pst.outbox o
+        WHERE o.published_at IS NULL
+          AND NOT EXISTS (SELECT 1 FROM pst.outbox e
+                          WHERE e.aggregate_id = o.aggregate_id AND e.published_at IS NULL AND e.id < o.id)
+        ORDER BY o.id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<OutboxEvent> lockPendingBatch(int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.publishedAt = :publishedAt WHERE o.id IN :ids")
+    int markPublished(Collection<Long> ids, LocalDateTime publishedAt);
+
+    @Query("SELECT MIN(o.createdAt) FROM OutboxEvent o WHERE o.publishedAt IS NULL")
+    LocalDateTime findOldestPendingCreatedAt();
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent o WHERE o.publishedAt < :before")
+    int deletePublishedBefore(LocalDateTime before);
+}
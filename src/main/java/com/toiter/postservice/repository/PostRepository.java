@@ -5,20 +5,28 @@ import com.toiter.postservice.model.PostData;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
 
+    @Transactional(readOnly = true)
     @Query("SELECT p FROM Post p WHERE p.id = :postId and p.deleted = false")
     Page<Post> findByParentPostId(Long parentPostId, Pageable pageable);
 
+    @Transactional(readOnly = true)
     @Query("SELECT p.id FROM Post p WHERE p.parentPostId = :parentPostId ORDER BY p.createdAt DESC")
     Page<Long> findChildIdsByParentPostId(Long parentPostId, Pageable pageable);
 
+    @Transactional(readOnly = true)
     @Query("""
         SELECT new com.toiter.postservice.model.PostData(
             p.id,
@@ -32,7 +40,7 @@ public interface PostRepository extends JpaRepository<Post, Long> {
             COUNT(DISTINCT l.id) as likesCount,
             COUNT(DISTINCT r.id) as repliesCount,
             COUNT(DISTINCT rp.id) as repostsCount,
-            COUNT(DISTINCT v.id) as viewCount,
+            COUNT(DISTINCT v.id) + COALESCE(MAX(vc.views), 0L) as viewCount,
             p.createdAt
         )
         FROM Post p
@@ -40,20 +48,83 @@ public interface PostRepository extends JpaRepository<Post, Long> {
         LEFT JOIN Post r ON r.parentPostId = p.id and r.deleted = false
         LEFT JOIN Post rp ON rp.repostParentId = p.id and rp.deleted = false
         LEFT JOIN View v ON v.post.id = p.id
+        LEFT JOIN ViewCount vc ON vc.postId = p.id
         WHERE p.id = :postId and p.deleted = false
         GROUP BY p.id
     """)
     Optional<PostData> fetchPostData(Long postId);
 
+    /**
+     * Same as {@link #fetchPostData(Long)} for many posts in one statement. Each counter is a correlated subquery
+     * on its own index instead of a join, so the rows aren't multiplied across likes, replies, reposts and views.
+     * Deleted and unknown posts are left out.
+     */
+    @Transactional(readOnly = true)
+    @Query("""
+        SELECT new com.toiter.postservice.model.PostData(
+            p.id,
+            p.parentPostId,
+            p.repostParentId,
+            p.userId,
+            p.content,
+            p.mediaUrl,
+            p.mediaWidth,
+            p.mediaHeight,
+            (SELECT COUNT(l.id) FROM Like l WHERE l.postId = p.id),
+            (SELECT COUNT(r.id) FROM Post r WHERE r.parentPostId = p.id and r.deleted = false),
+            (SELECT COUNT(rp.id) FROM Post rp WHERE rp.repostParentId = p.id and rp.deleted = false),
+            (SELECT COUNT(v.id) FROM View v WHERE v.postId = p.id)
+                + COALESCE((SELECT vc.views FROM ViewCount vc WHERE vc.postId = p.id), 0L),
+            p.createdAt
+        )
+        FROM Post p
+        WHERE p.id IN :postIds and p.deleted = false
+    """)
+    List<PostData> fetchPostDataByIds(Collection<Long> postIds);
+
+    @Transactional(readOnly = true)
     @Query("SELECT p.id FROM Post p WHERE p.userId = :userId and p.deleted = false and p.parentPostId is null ORDER BY p.createdAt DESC")
     Page<Long> fetchIdsByUserId(Long userId, Pageable pageable);
 
+    @Transactional(readOnly = true)
     @Query("SELECT p.id FROM Post p WHERE p.deleted = false and p.parentPostId is null ORDER BY p.createdAt DESC")
     Page<Long> fetchAllPostIds(Pageable pageable);
 
+    @Transactional(readOnly = true)
     @Query("SELECT COUNT(p.id) FROM Post p WHERE p.userId = :userId and p.deleted = false and p.parentPostId is null and p.repostParentId is null")
     Integer countByUserId(Long userId);
 
-    @Query("SELECT p FROM Post p WHERE p.repostParentId = :repostParentId and p.deleted = false")
-    java.util.List<Post> findRepostsByRepostParentId(Long repostParentId);
+    @Query(value = "SELECT id FROM pst.posts WHERE repost_parent_post_id = :repostParentId AND id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findRepostIdsAfter(Long repostParentId, Long afterId, int limit);
+
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT id FROM pst.posts WHERE id > :afterId AND deleted = false ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findLiveIdsAfter(Long afterId, int limit);
+
+    /**
+     * Soft-deletes the post unless it is already deleted. Of two concurrent deletes of the same post only one
+     * updates the row, the other waits for its lock and then finds the post deleted.
+     *
+     * @return 1 if this call deleted the post, 0 if it was already deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+        UPDATE pst.posts
+        SET content = '', media_url = NULL, deleted = true, deleted_at = :deletedAt
+        WHERE id = :id AND deleted = false
+    """, nativeQuery = true)
+    int softDelete(Long id, LocalDateTime deletedAt);
+
+    /**
+     * Soft-deletes the pure reposts (no content of their own) among the given IDs in one statement.
+     *
+     * @return the IDs of the reposts deleted by this call
+     */
+    @Query(value = """
+        UPDATE pst.posts
+        SET content = '', media_url = NULL, deleted = true, deleted_at = NOW()
+        WHERE id IN (:ids) AND deleted = false AND (content IS NULL OR content = '')
+        RETURNING id
+    """, nativeQuery = true)
+    List<Long> deletePureReposts(Collection<Long> ids);
 }
@@ -0,0 +1,30 @@
+package com.toiter.postservice.repository;
+
+import com.toiter.postservice.entity.PostViewers;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PostViewersRepository extends JpaRepository<PostViewers, Long> {
+
+    /**
+     * Stores the estimate of a post. The first time, the views counted in rows mode are stored as the baseline; no
+     * rows are written in HyperLogLog mode, so they are the views the post had before the switch. Views recorded
+     * for an ID that is not a post are ignored.
+     *
+     * @return the post's view count, baseline plus estimate, or null if the ID is not a post
+     */
+    @Query(value = """
+        INSERT INTO pst.post_viewers (post_id, viewers, registers, baseline, updated_at)
+        SELECT :postId, :viewers, :registers,
+               (SELECT COUNT(*) FROM pst.view WHERE post_id = :postId)
+                   + COALESCE((SELECT views FROM pst.view_counts WHERE post_id = :postId), 0),
+               NOW()
+        WHERE EXISTS (SELECT 1 FROM pst.posts WHERE id = :postId)
+        ON CONFLICT (post_id) DO UPDATE
+        SET viewers = EXCLUDED.viewers, registers = EXCLUDED.registers, updated_at = EXCLUDED.updated_at
+        RETURNING baseline + viewers
+    """, nativeQuery = true)
+    Long upsert(Long postId, Long viewers, byte[] registers);
+}
@@ -0,0 +1,9 @@
+package com.toiter.postservice.repository;
+
+import com.toiter.postservice.entity.RepostCascadeProgress;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RepostCascadeRepository extends JpaRepository<RepostCascadeProgress, Long> {
+}
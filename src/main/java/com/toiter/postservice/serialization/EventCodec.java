@@ -0,0 +1,346 @@
+package com.toiter.postservice.serialization;
+
+import com.toiter.postservice.entity.Post;
+import com.toiter.postservice.model.*;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Compact binary encoding of every Kafka event, defined once in {@link Schema} and used for both directions.
+ * <p>
+ * Layout: magic byte, schema version, type tag, then the fields of the type. Each type starts with a bitmask of the
+ * fields present, followed by those fields in schema order. Integers are zig-zag varints, strings are a varint
+ * length plus UTF-8 bytes and timestamps are UTC epoch microseconds. New fields are appended at the end of a type,
+ * under a new bit and a new schema version, so older payloads stay readable; version 2 added the event ID. No
+ * registry is needed since the type and version travel in the payload, and no header either: a content type header
+ * would be larger than most events.
+ * <p>
+ * JSON payloads never start with {@link #MAGIC}, which is how {@link EventDeserializer} tells the two apart.
+ */
+public final class EventCodec {
+    public static final byte MAGIC = (byte) 0xE7;
+    public static final byte VERSION = 2;
+
+    private static final int EVENT_ID_BIT_IDS = 2;
+    private static final int EVENT_ID_BIT_POST = 11;
+
+    private EventCodec() {
+    }
+
+    private enum Schema {
+        POST_CREATED(1, PostCreatedEvent.class) {
+            @Override
+            void write(Writer out, Object event) {
+                PostCreatedEvent created = (PostCreatedEvent) event;
+                writePost(out, created.getEventId(), created.getPost());
+            }
+
+            @Override
+            Object read(Reader in) {
+                long mask = in.readVarLong();
+                Post post = readPost(in, mask);
+                return new PostCreatedEvent(in.readUuid(mask, EVENT_ID_BIT_POST), post);
+            }
+        },
+        POST_DELETED(2, PostDeletedEvent.class) {
+            @Override
+            void write(Writer out, Object event) {
+                PostDeletedEvent deleted = (PostDeletedEvent) event;
+                writePost(out, deleted.getEventId(), deleted.getPost());
+            }
+
+            @Override
+            Object read(Reader in) {
+                long mask = in.readVarLong();
+                Post post = readPost(in, mask);
+                return new PostDeletedEvent(in.readUuid(mask, EVENT_ID_BIT_POST), post);
+            }
+        },
+        POST_LIKED(3, PostLikedEvent.class) {
+            @Override
+            void write(Writer out, Object event) {
+                LikeEvent like = (LikeEvent) event;
+                writeIds(out, like.getEventId(), like.getPostId(), like.getUserId());
+            }
+
+            @Override
+            Object read(Reader in) {
+                long mask = in.readVarLong();
+                Long postId = in.readLong(mask, 0);
+                Long userId = in.readLong(mask, 1);
+                return new PostLikedEvent(in.readUuid(mask, EVENT_ID_BIT_IDS), postId, userId);
+            }
+        },
+        POST_UNLIKED(4, PostUnlikedEvent.class) {
+            @Override
+            void write(Writer out, Object event) {
+                LikeEvent like = (LikeEvent) event;
+                writeIds(out, like.getEventId(), like.getPostId(), like.getUserId());
+            }
+
+            @Override
+            Object read(Reader in) {
+                long mask = in.readVarLong();
+                Long postId = in.readLong(mask, 0);
+                Long userId = in.readLong(mask, 1);
+                return new PostUnlikedEvent(in.readUuid(mask, EVENT_ID_BIT_IDS), postId, userId);
+            }
+        },
+        POST_VIEWED(5, PostViewedEvent.class) {
+            @Override
+            void write(Writer out, Object event) {
+                PostViewedEvent view = (PostViewedEvent) event;
+                writeIds(out, view.getEventId(), view.getPostId(), view.getUserId());
+            }
+
+            @Override
+            Object read(Reader in) {
+                long mask = in.readVarLong();
+                Long postId = in.readLong(mask, 0);
+                Long userId = in.readLong(mask, 1);
+                return new PostViewedEvent(in.readUuid(mask, EVENT_ID_BIT_IDS), postId, userId);
+            }
+        };
+
+        private final byte tag;
+        private final Class<?> type;
+
+        Schema(int tag, Class<?> type) {
+            this.tag = (byte) tag;
+            this.type = type;
+        }
+
+        abstract void write(Writer out, Object event);
+
+        abstract Object read(Reader in);
+
+        static Schema forType(Class<?> type) {
+            for (Schema schema : values()) {
+                if (schema.type == type) {
+                    return schema;
+                }
+            }
+            return null;
+        }
+
+        static Schema forTag(byte tag) {
+            for (Schema schema : values()) {
+                if (schema.tag == tag) {
+                    return schema;
+                }
+            }
+            throw new SerializationException("Unknown event type tag " + tag);
+        }
+    }
+
+    public static boolean supports(Object event) {
+        return event != null && Schema.forType(event.getClass()) != null;
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(Object event) {
+        Schema schema = Schema.forType(event.getClass());
+        if (schema == null) {
+            throw new SerializationException("No binary schema for " + event.getClass().getName());
+        }
+        Writer out = new Writer();
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(schema.tag);
+        schema.write(out, event);
+        return out.toByteArray();
+    }
+
+    public static Object decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new SerializationException("Not a binary event payload");
+        }
+        try {
+            Reader in = new Reader(ByteBuffer.wrap(data, 1, data.length - 1));
+            byte version = in.readByte();
+            if (version < 1 || version > VERSION) {
+                throw new SerializationException("Unsupported event schema version " + version);
+            }
+            return Schema.forTag(in.readByte()).read(in);
+        } catch (RuntimeException e) {
+            if (e instanceof SerializationException) {
+                throw e;
+            }
+            throw new SerializationException("Malformed binary event payload", e);
+        }
+    }
+
+    private static void writeIds(Writer out, UUID eventId, Long postId, Long userId) {
+        out.writeVarLong(mask(postId, userId, eventId));
+        out.writeLong(postId);
+        out.writeLong(userId);
+        out.writeUuid(eventId);
+    }
+
+    private static void writePost(Writer out, UUID eventId, Post post) {
+        long mask = mask(post.getId(), post.getParentPostId(), post.getRepostParentId(), post.getUserId(), post.getContent(),
+                post.getMediaUrl(), post.getMediaWidth(), post.getMediaHeight(), post.getCreatedAt(), post.getDeletedAt());
+        if (post.isDeleted()) {
+            mask |= 1L << 10;
+        }
+        if (eventId != null) {
+            mask |= 1L << EVENT_ID_BIT_POST;
+        }
+        out.writeVarLong(mask);
+        out.writeLong(post.getId());
+        out.writeLong(post.getParentPostId());
+        out.writeLong(post.getRepostParentId());
+        out.writeLong(post.getUserId());
+        out.writeString(post.getContent());
+        out.writeString(post.getMediaUrl());
+        out.writeLong(post.getMediaWidth() == null ? null : post.getMediaWidth().longValue());
+        out.writeLong(post.getMediaHeight() == null ? null : post.getMediaHeight().longValue());
+        out.writeTimestamp(post.getCreatedAt());
+        out.writeTimestamp(post.getDeletedAt());
+        out.writeUuid(eventId);
+    }
+
+    private static Post readPost(Reader in, long mask) {
+        Post post = new Post();
+        post.setId(in.readLong(mask, 0));
+        post.setParentPostId(in.readLong(mask, 1));
+        post.setRepostParentId(in.readLong(mask, 2));
+        post.setUserId(in.readLong(mask, 3));
+        post.setContent(in.readString(mask, 4));
+        post.setMediaUrl(in.readString(mask, 5));
+        post.setMediaWidth(toInteger(in.readLong(mask, 6)));
+        post.setMediaHeight(toInteger(in.readLong(mask, 7)));
+        post.setCreatedAt(in.readTimestamp(mask, 8));
+        post.setDeletedAt(in.readTimestamp(mask, 9));
+        post.setDeleted((mask & (1L << 10)) != 0);
+        return post;
+    }
+
+    private static long mask(Object... fields) {
+        long mask = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    private static Integer toInteger(Long value) {
+        return value == null ? null : Math.toIntExact(value);
+    }
+
+    private static final class Writer {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+
+        void writeByte(byte value) {
+            bytes.write(value);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            bytes.write((int) value);
+        }
+
+        // Absent values are skipped, the field mask already says they are missing
+        void writeLong(Long value) {
+            if (value != null) {
+                writeVarLong((value << 1) ^ (value >> 63));
+            }
+        }
+
+        void writeString(String value) {
+            if (value != null) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(utf8.length);
+                bytes.writeBytes(utf8);
+            }
+        }
+
+        void writeUuid(UUID value) {
+            if (value != null) {
+                ByteBuffer bytes16 = ByteBuffer.allocate(16);
+                bytes16.putLong(value.getMostSignificantBits()).putLong(value.getLeastSignificantBits());
+                bytes.writeBytes(bytes16.array());
+            }
+        }
+
+        void writeTimestamp(LocalDateTime value) {
+            if (value != null) {
+                writeLong(value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000);
+            }
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer buffer;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        byte readByte() {
+            return buffer.get();
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint");
+        }
+
+        Long readLong(long mask, int bit) {
+            return present(mask, bit, () -> {
+                long raw = readVarLong();
+                return (raw >>> 1) ^ -(raw & 1);
+            });
+        }
+
+        String readString(long mask, int bit) {
+            return present(mask, bit, () -> {
+                byte[] utf8 = new byte[Math.toIntExact(readVarLong())];
+                buffer.get(utf8);
+                return new String(utf8, StandardCharsets.UTF_8);
+            });
+        }
+
+        UUID readUuid(long mask, int bit) {
+            return present(mask, bit, () -> new UUID(buffer.getLong(), buffer.getLong()));
+        }
+
+        LocalDateTime readTimestamp(long mask, int bit) {
+            Long micros = readLong(mask, bit);
+            if (micros == null) {
+                return null;
+            }
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+        }
+
+        private static <T> T present(long mask, int bit, Supplier<T> read) {
+            return (mask & (1L << bit)) != 0 ? read.get() : null;
+        }
+    }
+}
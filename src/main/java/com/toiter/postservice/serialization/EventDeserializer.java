@@ -0,0 +1,46 @@
+package com.toiter.postservice.serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+/**
+ * Reads events in either encoding. Binary payloads are recognized by their leading {@link EventCodec#MAGIC} byte;
+ * anything else is read as JSON using the type headers, so records written before the switch stay readable.
+ */
+public class EventDeserializer<T> implements Deserializer<T> {
+    private final Class<T> targetType;
+    private final JsonDeserializer<T> jsonDeserializer;
+
+    public EventDeserializer(Class<T> targetType) {
+        this.targetType = targetType;
+        this.jsonDeserializer = new JsonDeserializer<>(targetType);
+        this.jsonDeserializer.addTrustedPackages("*");
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (EventCodec.isBinary(data)) {
+            Object event = EventCodec.decode(data);
+            if (!targetType.isInstance(event)) {
+                throw new SerializationException("Expected " + targetType.getName() + " on topic " + topic + " but got " + event.getClass().getName());
+            }
+            return targetType.cast(event);
+        }
+        return headers == null ? jsonDeserializer.deserialize(topic, data) : jsonDeserializer.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
@@ -0,0 +1,15 @@
+package com.toiter.postservice.serialization;
+
+import java.util.Locale;
+
+/**
+ * Encoding used when producing events. Consumers read both, whatever this is set to.
+ */
+public enum EventEncoding {
+    JSON,
+    BINARY;
+
+    public static EventEncoding from(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,46 @@
+package com.toiter.postservice.serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Writes events in the configured {@link EventEncoding}. Binary payloads carry their type and version inside, so
+ * they are written without any header; anything without a binary schema is written as JSON.
+ */
+public class EventSerializer<T> implements Serializer<T> {
+    private static final String JSON_TYPE_HEADER = AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME;
+
+    private final EventEncoding encoding;
+    private final JsonSerializer<T> jsonSerializer = new JsonSerializer<>();
+
+    public EventSerializer(EventEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, T data) {
+        if (data == null) {
+            return null;
+        }
+        if (encoding == EventEncoding.BINARY && EventCodec.supports(data)) {
+            if (headers != null) {
+                // Type headers copied from a JSON record (e.g. when dead-lettering) no longer apply
+                headers.remove(JSON_TYPE_HEADER);
+            }
+            return EventCodec.encode(data);
+        }
+        return headers == null ? jsonSerializer.serialize(topic, data) : jsonSerializer.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+}
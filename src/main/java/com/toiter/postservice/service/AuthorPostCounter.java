@@ -0,0 +1,112 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.entity.Post;
+import com.toiter.postservice.repository.AuthorPostCountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the number of posts of each author in {@code pst.author_post_counts}, counting what
+ * {@code PostRepository.countByUserId} counts: top-level, non-deleted posts that are not reposts.
+ * <p>
+ * The table is updated in the transaction that creates or deletes the post. Redis mirrors it for
+ * {@code posts.author-counts.cache-ttl}: once the transaction commits, the count it wrote replaces the cached one.
+ * Misses are read from the primary and only cached if no writer cached a count in the meantime, so a reader can't
+ * put back a value older than the last write.
+ */
+@Service
+public class AuthorPostCounter {
+    private final Logger logger = LoggerFactory.getLogger(AuthorPostCounter.class);
+    private final AuthorPostCountRepository authorPostCountRepository;
+    private final CacheService cacheService;
+    private final Duration cacheTtl;
+
+    public AuthorPostCounter(AuthorPostCountRepository authorPostCountRepository, CacheService cacheService,
+                             @Value("${posts.author-counts.cache-ttl:PT1H}") Duration cacheTtl) {
+        this.authorPostCountRepository = authorPostCountRepository;
+        this.cacheService = cacheService;
+        this.cacheTtl = cacheTtl;
+    }
+
+    public void postCreated(Post post) {
+        if (counts(post)) {
+            add(post.getUserId(), 1);
+        }
+    }
+
+    /**
+     * Must only be called by the transaction whose soft delete actually flipped the post's {@code deleted} flag, so
+     * concurrent deletes of the same post are counted once.
+     */
+    public void postDeleted(Post post) {
+        if (counts(post) && !post.isDeleted()) {
+            add(post.getUserId(), -1);
+        }
+    }
+
+    /**
+     * Post counts of the given authors; authors without posts get 0. Reads Redis first and the table, in one
+     * query, for the rest.
+     */
+    public Map<Long, Long> countsFor(Collection<Long> userIds) {
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(userIds));
+        Map<Long, Long> counts = new HashMap<>();
+        try {
+            counts.putAll(cacheService.getAuthorPostCounts(ids));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to read the post counts of {} authors from the cache", ids.size(), e);
+        }
+        List<Long> misses = ids.stream().filter(id -> !counts.containsKey(id)).toList();
+        if (misses.isEmpty()) {
+            return counts;
+        }
+
+        Map<Long, Long> loaded = new HashMap<>();
+        misses.forEach(id -> loaded.put(id, 0L));
+        authorPostCountRepository.findAllOnPrimary(misses).forEach(row -> loaded.put(row.getUserId(), row.getPosts()));
+        try {
+            cacheService.cacheAuthorPostCountsIfAbsent(loaded, cacheTtl);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to cache the post counts of {} authors", loaded.size(), e);
+        }
+        counts.putAll(loaded);
+        return counts;
+    }
+
+    private static boolean counts(Post post) {
+        return post.getParentPostId() == null && post.getRepostParentId() == null;
+    }
+
+    private void add(Long userId, long delta) {
+        long count = authorPostCountRepository.add(userId, delta);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache(userId, count);
+                }
+            });
+        } else {
+            cache(userId, count);
+        }
+    }
+
+    private void cache(Long userId, long count) {
+        try {
+            cacheService.cacheAuthorPostCount(userId, count, cacheTtl);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to cache the post count of user ID: {}", userId, e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.toiter.postservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation for Redis cache calls.
+ * Every call is counted on {@code cache.requests} and timed on {@code cache.latency}, both tagged with
+ * keyspace, operation and outcome ({@code hit}, {@code miss}, {@code success} or {@code error}).
+ */
+@Component
+public class CacheMetrics {
+    public static final String HIT = "hit";
+    public static final String MISS = "miss";
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlightLockWaits = new AtomicInteger();
+
+    public CacheMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("cache.lock.waits.inflight", inFlightLockWaits, AtomicInteger::get)
+                .description("Threads currently waiting for a cache lock")
+                .register(meterRegistry);
+    }
+
+    public <T> T record(String keyspace, String operation, Supplier<T> call, Function<T, String> outcome) {
+        long start = System.nanoTime();
+        String result = ERROR;
+        try {
+            T value = call.get();
+            result = outcome.apply(value);
+            return value;
+        } finally {
+            record(keyspace, operation, result, System.nanoTime() - start);
+        }
+    }
+
+    public <T> T recordLookup(String keyspace, String operation, Supplier<T> call) {
+        return record(keyspace, operation, call, value -> value != null ? HIT : MISS);
+    }
+
+    public <T> List<T> recordBatchLookup(String keyspace, String operation, Supplier<List<T>> call) {
+        long start = System.nanoTime();
+        List<T> values = null;
+        try {
+            values = call.get();
+            return values;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (values == null) {
+                record(keyspace, operation, ERROR, elapsed);
+            } else {
+                long hits = values.stream().filter(Objects::nonNull).count();
+                Tags tags = Tags.of("keyspace", keyspace, "operation", operation);
+                meterRegistry.counter("cache.requests", tags.and("outcome", HIT)).increment(hits);
+                meterRegistry.counter("cache.requests", tags.and("outcome", MISS)).increment(values.size() - hits);
+                timer(tags.and("outcome", SUCCESS)).record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    public void recordWrite(String keyspace, String operation, Runnable call) {
+        record(keyspace, operation, () -> {
+            call.run();
+            return null;
+        }, value -> SUCCESS);
+    }
+
+    public void lockWaitStarted() {
+        inFlightLockWaits.incrementAndGet();
+    }
+
+    public void lockWaitFinished() {
+        inFlightLockWaits.decrementAndGet();
+    }
+
+    private void record(String keyspace, String operation, String outcome, long elapsedNanos) {
+        Tags tags = Tags.of("keyspace", keyspace, "operation", operation, "outcome", outcome);
+        meterRegistry.counter("cache.requests", tags).increment();
+        timer(tags).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(Tags tags) {
+        return Timer.builder("cache.latency")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -1,16 +1,30 @@
 package com.toiter.postservice.service;
 
+import com.toiter.postservice.model.LikeStatus;
 import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.model.PostView;
 import com.toiter.userservice.entity.User;
 import com.toiter.userservice.model.UserPublicData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.integration.redis.util.RedisLockRegistry;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
@@ -19,6 +33,24 @@ public class CacheService {
     private final Logger logger = LoggerFactory.getLogger(CacheService.class);
     private final String POST_ID_DATA_KEY_PREFIX = "post:id:";
     private final String LIKE_KEY_PREFIX = "like:user:";
+    private static final String KEYSPACE_POST = "post";
+    private static final String KEYSPACE_USER_POSTS = "user-posts";
+    private static final String KEYSPACE_LIKE = "like";
+    private static final String KEYSPACE_USER = "user";
+    private static final String KEYSPACE_USER_PUBLIC = "user-public";
+    private static final String KEYSPACE_USERNAME = "username";
+    private static final String KEYSPACE_LOCK = "lock";
+    private static final String KEYSPACE_EVENT = "event";
+    private static final String EVENT_KEY_PREFIX = "event:applied:";
+    private static final String KEYSPACE_VIEWERS = "viewers";
+    private static final String VIEWERS_KEY_PREFIX = "view:hll:post:";
+    private static final String VIEWERS_DIRTY_KEY = "view:hll:dirty";
+    private static final String KEYSPACE_VIEW_SEEN = "view-seen";
+    private static final String VIEW_SEEN_KEY_PREFIX = "view:seen:";
+    private static final String KEYSPACE_RECENT_WRITE = "recent-write";
+    private static final String KEYSPACE_AUTHOR_POSTS = "author-posts";
+    private static final String AUTHOR_POSTS_KEY_PREFIX = "user:posts:count:";
+    private static final String RECENT_WRITE_KEY_PREFIX = "write:recent:user:";
     private final RedisTemplate<String, PostData> redisTemplateForPostData;
     private final RedisTemplate<String, Long> redisTemplateForSet;
     private final RedisTemplate<String, Boolean> redisTemplateForLike;
@@ -27,8 +59,10 @@ public class CacheService {
     private final RedisTemplate<String, User> redisTemplateForUser;
     private final RedisTemplate<String, String> redisTemplateForString;
     private final RedisLockRegistry redisLockRegistry;
+    private final PostCacheTtlPolicy ttlPolicy;
+    private final CacheMetrics cacheMetrics;
 
-    public CacheService(RedisTemplate<String, PostData> redisTemplateForPostData, RedisTemplate<String, Long> redisTemplateForSet, RedisTemplate<String, Boolean> redisTemplateForLike, RedisTemplate<String, Long> redisTemplateForLong, RedisTemplate<String, UserPublicData> redisTemplateForUserPublicData, RedisTemplate<String, User> redisTemplateForUser, RedisTemplate<String, String> redisTemplateForString, RedisLockRegistry redisLockRegistry) {
+    public CacheService(RedisTemplate<String, PostData> redisTemplateForPostData, RedisTemplate<String, Long> redisTemplateForSet, RedisTemplate<String, Boolean> redisTemplateForLike, RedisTemplate<String, Long> redisTemplateForLong, RedisTemplate<String, UserPublicData> redisTemplateForUserPublicData, RedisTemplate<String, User> redisTemplateForUser, RedisTemplate<String, String> redisTemplateForString, RedisLockRegistry redisLockRegistry, PostCacheTtlPolicy ttlPolicy, CacheMetrics cacheMetrics) {
         this.redisTemplateForPostData = redisTemplateForPostData;
         this.redisTemplateForSet = redisTemplateForSet;
         this.redisTemplateForLike = redisTemplateForLike;
@@ -37,6 +71,8 @@ public class CacheService {
         this.redisTemplateForUser = redisTemplateForUser;
         this.redisTemplateForString = redisTemplateForString;
         this.redisLockRegistry = redisLockRegistry;
+        this.ttlPolicy = ttlPolicy;
+        this.cacheMetrics = cacheMetrics;
     }
 
     private PostData sanitizeForCache(PostData source) {
@@ -80,28 +116,121 @@ public class CacheService {
         logger.debug("Caching post data for ID: {}", postData.getId());
 
         PostData toCache = sanitizeForCache(postData);
-        redisTemplateForPostData.opsForValue().set(POST_ID_DATA_KEY_PREFIX + postData.getId(), toCache, Duration.ofHours(1));
-        redisTemplateForSet.opsForSet().add(userIndexKey, postData.getId());
-        redisTemplateForSet.expire(userIndexKey, Duration.ofHours(1));
+        cacheMetrics.recordWrite(KEYSPACE_POST, "set", () ->
+                redisTemplateForPostData.opsForValue().set(POST_ID_DATA_KEY_PREFIX + postData.getId(), toCache, ttlPolicy.ttlFor(postData)));
+        cacheMetrics.recordWrite(KEYSPACE_USER_POSTS, "add", () -> {
+            redisTemplateForSet.opsForSet().add(userIndexKey, postData.getId());
+            redisTemplateForSet.expire(userIndexKey, Duration.ofHours(1));
+        });
 
         logger.debug("Post data cached successfully for ID: {} and added to user index for userId: {}", postData.getId(), userId);
     }
 
     public PostData getCachedPostById(Long postId) {
         logger.debug("Fetching post data for ID on Cache: {}", postId);
-        PostData post = redisTemplateForPostData.opsForValue().get(POST_ID_DATA_KEY_PREFIX + postId);
+        ttlPolicy.recordAccess(postId);
+        PostData post = cacheMetrics.recordLookup(KEYSPACE_POST, "get", () ->
+                redisTemplateForPostData.opsForValue().get(POST_ID_DATA_KEY_PREFIX + postId));
         if(post != null) {
             logger.debug("CACHE HIT: post data found for ID: {}", postId);
-            redisTemplateForPostData.expire(POST_ID_DATA_KEY_PREFIX + postId, Duration.ofHours(1));
+            cacheMetrics.recordWrite(KEYSPACE_POST, "expire", () ->
+                    redisTemplateForPostData.expire(POST_ID_DATA_KEY_PREFIX + postId, ttlPolicy.ttlFor(post)));
             return post;
         }
         logger.debug("CACHE MISS: post data not found for ID: {}", postId);
         return null;
     }
 
+    /**
+     * {@link #getCachedPostsByIds(Collection)} for posts a user is reading, so each access counts towards the TTL
+     * policy like {@link #getCachedPostById(Long)} does.
+     */
+    public Map<Long, PostData> getCachedPostsForRead(Collection<Long> postIds) {
+        postIds.forEach(ttlPolicy::recordAccess);
+        return getCachedPostsByIds(postIds);
+    }
+
+    /**
+     * Fetches several posts in a single MGET. Posts missing from the cache are absent from the returned map.
+     */
+    public Map<Long, PostData> getCachedPostsByIds(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> ids = List.copyOf(postIds);
+        List<String> keys = ids.stream().map(id -> POST_ID_DATA_KEY_PREFIX + id).toList();
+        List<PostData> values = cacheMetrics.recordBatchLookup(KEYSPACE_POST, "mget", () ->
+                redisTemplateForPostData.opsForValue().multiGet(keys));
+        Map<Long, PostData> posts = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            PostData post = values.get(i);
+            if (post != null) {
+                posts.put(ids.get(i), post);
+            }
+        }
+        logger.debug("Fetched {} of {} posts from cache", posts.size(), ids.size());
+        return posts;
+    }
+
+    /**
+     * Rewrites several already cached posts in one pipeline. Only the post keys are written, the user index is
+     * left untouched since patching counters never changes index membership.
+     */
+    public void cachePostDataBatch(Collection<PostData> posts) {
+        if (posts.isEmpty()) {
+            return;
+        }
+        logger.debug("Caching {} posts in a pipeline", posts.size());
+        cacheMetrics.recordWrite(KEYSPACE_POST, "pipelined-set", () ->
+                redisTemplateForPostData.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, PostData> ops = (RedisOperations<String, PostData>) operations;
+                        for (PostData post : posts) {
+                            ops.opsForValue().set(POST_ID_DATA_KEY_PREFIX + post.getId(), sanitizeForCache(post), ttlPolicy.ttlFor(post));
+                        }
+                        return null;
+                    }
+                }));
+    }
+
+    /**
+     * Like {@link #cachePostDataBatch(Collection)}, but leaves posts that are already cached untouched.
+     *
+     * @return the posts written
+     */
+    public List<PostData> cachePostDataBatchIfAbsent(Collection<PostData> posts) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+        List<PostData> toWrite = List.copyOf(posts);
+        List<Object> results = cacheMetrics.record(KEYSPACE_POST, "pipelined-setnx", () ->
+                redisTemplateForPostData.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, PostData> ops = (RedisOperations<String, PostData>) operations;
+                        for (PostData post : toWrite) {
+                            ops.opsForValue().setIfAbsent(POST_ID_DATA_KEY_PREFIX + post.getId(), sanitizeForCache(post), ttlPolicy.ttlFor(post));
+                        }
+                        return null;
+                    }
+                }), value -> CacheMetrics.SUCCESS);
+        List<PostData> written = new ArrayList<>();
+        for (int i = 0; i < toWrite.size(); i++) {
+            if (Boolean.TRUE.equals(results.get(i))) {
+                written.add(toWrite.get(i));
+            }
+        }
+        return written;
+    }
+
     public boolean existsPostById(Long postId) {
         logger.debug("Checking existence of post data for ID: {}", postId);
-        return redisTemplateForPostData.hasKey(POST_ID_DATA_KEY_PREFIX + postId);
+        return cacheMetrics.record(KEYSPACE_POST, "exists", () ->
+                redisTemplateForPostData.hasKey(POST_ID_DATA_KEY_PREFIX + postId),
+                exists -> Boolean.TRUE.equals(exists) ? CacheMetrics.HIT : CacheMetrics.MISS);
     }
 
     public void deletePostData(PostData postData) {
@@ -113,24 +242,30 @@ public class CacheService {
 
 
             PostData toCache = sanitizeForCache(postData);
-            redisTemplateForPostData.opsForValue().set(POST_ID_DATA_KEY_PREFIX + postData.getId(), toCache, Duration.ofHours(1));
+            cacheMetrics.recordWrite(KEYSPACE_POST, "set", () ->
+                    redisTemplateForPostData.opsForValue().set(POST_ID_DATA_KEY_PREFIX + postData.getId(), toCache, ttlPolicy.ttlFor(postData)));
 
-            redisTemplateForSet.opsForSet().remove(userIndexKey, postData.getId());
+            cacheMetrics.recordWrite(KEYSPACE_USER_POSTS, "remove", () ->
+                    redisTemplateForSet.opsForSet().remove(userIndexKey, postData.getId()));
         });
     }
 
     public Set<Long> getUserPostIds(Long userId) {
         String userIndexKey = "user:posts:" + userId;
         logger.debug("Fetching post IDs for user ID: {}", userId);
-        return redisTemplateForSet.opsForSet().members(userIndexKey);
+        return cacheMetrics.record(KEYSPACE_USER_POSTS, "members", () ->
+                redisTemplateForSet.opsForSet().members(userIndexKey),
+                ids -> ids != null && !ids.isEmpty() ? CacheMetrics.HIT : CacheMetrics.MISS);
     }
 
     public Boolean getLikeStatus(Long userId, Long postId) {
         String likeKey = LIKE_KEY_PREFIX + userId + ":post:" + postId;
         logger.debug("Fetching like status for user ID: {} and post ID: {}", userId, postId);
-        Boolean liked = redisTemplateForLike.opsForValue().get(likeKey);
+        Boolean liked = cacheMetrics.recordLookup(KEYSPACE_LIKE, "get", () ->
+                redisTemplateForLike.opsForValue().get(likeKey));
         if (liked != null) {
-            redisTemplateForLike.expire(likeKey, Duration.ofHours(1));
+            cacheMetrics.recordWrite(KEYSPACE_LIKE, "expire", () ->
+                    redisTemplateForLike.expire(likeKey, Duration.ofHours(1)));
             logger.debug("CACHE HIT: like status found for user {} post {}: {}", userId, postId, liked);
         } else {
             logger.debug("CACHE MISS: like status not found for user {} post {}", userId, postId);
@@ -141,30 +276,314 @@ public class CacheService {
     public void setLikeStatus(Long userId, Long postId, boolean liked) {
         String likeKey = LIKE_KEY_PREFIX + userId + ":post:" + postId;
         logger.debug("Setting like status for user ID: {} and post ID: {} to {}", userId, postId, liked);
-        redisTemplateForLike.opsForValue().set(likeKey, liked, Duration.ofHours(1));
+        cacheMetrics.recordWrite(KEYSPACE_LIKE, "set", () ->
+                redisTemplateForLike.opsForValue().set(likeKey, liked, Duration.ofHours(1)));
+    }
+
+    public void setLikeStatuses(Collection<LikeStatus> statuses) {
+        if (statuses.isEmpty()) {
+            return;
+        }
+        logger.debug("Setting {} like statuses in a pipeline", statuses.size());
+        cacheMetrics.recordWrite(KEYSPACE_LIKE, "pipelined-set", () ->
+                redisTemplateForLike.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, Boolean> ops = (RedisOperations<String, Boolean>) operations;
+                        for (LikeStatus status : statuses) {
+                            String likeKey = LIKE_KEY_PREFIX + status.userId() + ":post:" + status.postId();
+                            ops.opsForValue().set(likeKey, status.liked(), Duration.ofHours(1));
+                        }
+                        return null;
+                    }
+                }));
+    }
+
+    /**
+     * Returns which of the given event IDs were marked as applied, with one MGET.
+     */
+    public Set<UUID> getAppliedEventIds(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Set.of();
+        }
+        List<UUID> ids = List.copyOf(eventIds);
+        List<String> values = cacheMetrics.recordBatchLookup(KEYSPACE_EVENT, "mget", () ->
+                redisTemplateForString.opsForValue().multiGet(ids.stream().map(id -> EVENT_KEY_PREFIX + id).toList()));
+        Set<UUID> applied = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (values.get(i) != null) {
+                applied.add(ids.get(i));
+            }
+        }
+        return applied;
+    }
+
+    public void markEventsApplied(Collection<UUID> eventIds, Duration window) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        cacheMetrics.recordWrite(KEYSPACE_EVENT, "pipelined-set", () ->
+                redisTemplateForString.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        for (UUID eventId : eventIds) {
+                            ops.opsForValue().set(EVENT_KEY_PREFIX + eventId, "1", window);
+                        }
+                        return null;
+                    }
+                }));
+    }
+
+    /**
+     * Claims each view for the dedup window with a pipelined SET NX.
+     *
+     * @return the views not already seen within the window
+     */
+    public List<PostView> claimViews(List<PostView> views, Duration window) {
+        if (views.isEmpty()) {
+            return List.of();
+        }
+        List<Object> results = cacheMetrics.record(KEYSPACE_VIEW_SEEN, "pipelined-setnx", () ->
+                redisTemplateForString.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        for (PostView view : views) {
+                            ops.opsForValue().setIfAbsent(viewSeenKey(view), "1", window);
+                        }
+                        return null;
+                    }
+                }), value -> CacheMetrics.SUCCESS);
+        List<PostView> claimed = new ArrayList<>();
+        for (int i = 0; i < views.size(); i++) {
+            if (Boolean.TRUE.equals(results.get(i))) {
+                claimed.add(views.get(i));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Releases claims taken by {@link #claimViews(List, Duration)} for views that could not be stored.
+     */
+    public void releaseViews(Collection<PostView> views) {
+        if (views.isEmpty()) {
+            return;
+        }
+        cacheMetrics.recordWrite(KEYSPACE_VIEW_SEEN, "del", () ->
+                redisTemplateForString.delete(views.stream().map(this::viewSeenKey).toList()));
+    }
+
+    private String viewSeenKey(PostView view) {
+        return VIEW_SEEN_KEY_PREFIX + view.userId() + ":" + view.postId();
+    }
+
+    /**
+     * Cached post counts of the given authors, in one MGET. Authors not in the cache are left out.
+     */
+    public Map<Long, Long> getAuthorPostCounts(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> ids = List.copyOf(userIds);
+        List<String> values = cacheMetrics.recordBatchLookup(KEYSPACE_AUTHOR_POSTS, "mget", () ->
+                redisTemplateForString.opsForValue().multiGet(ids.stream().map(id -> AUTHOR_POSTS_KEY_PREFIX + id).toList()));
+        Map<Long, Long> counts = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (values.get(i) != null) {
+                counts.put(ids.get(i), Long.valueOf(values.get(i)));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Caches counts read from the database, leaving authors whose count a writer cached in the meantime untouched.
+     */
+    public void cacheAuthorPostCountsIfAbsent(Map<Long, Long> counts, Duration ttl) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        cacheMetrics.recordWrite(KEYSPACE_AUTHOR_POSTS, "pipelined-setnx", () ->
+                redisTemplateForString.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        counts.forEach((userId, count) -> ops.opsForValue().setIfAbsent(AUTHOR_POSTS_KEY_PREFIX + userId, String.valueOf(count), ttl));
+                        return null;
+                    }
+                }));
+    }
+
+    public void cacheAuthorPostCount(Long userId, long count, Duration ttl) {
+        cacheMetrics.recordWrite(KEYSPACE_AUTHOR_POSTS, "set", () ->
+                redisTemplateForString.opsForValue().set(AUTHOR_POSTS_KEY_PREFIX + userId, String.valueOf(count), ttl));
+    }
+
+    /**
+     * Remembers that the user just wrote something, for {@code window}.
+     */
+    public void markRecentWrite(Long userId, Duration window) {
+        cacheMetrics.recordWrite(KEYSPACE_RECENT_WRITE, "set", () ->
+                redisTemplateForString.opsForValue().set(RECENT_WRITE_KEY_PREFIX + userId, "1", window));
+    }
+
+    public boolean hasRecentWrite(Long userId) {
+        return cacheMetrics.recordLookup(KEYSPACE_RECENT_WRITE, "get", () ->
+                redisTemplateForString.opsForValue().get(RECENT_WRITE_KEY_PREFIX + userId)) != null;
+    }
+
+    /**
+     * Adds a viewer to the post's HyperLogLog and marks the post for the next persist, in one round trip.
+     */
+    public void addViewer(Long postId, Long userId, Duration ttl) {
+        addViewer(List.of(postId), userId, ttl);
+    }
+
+    /**
+     * Adds the user to the viewers of every given post in a single pipeline.
+     */
+    public void addViewer(Collection<Long> postIds, Long userId, Duration ttl) {
+        if (postIds.isEmpty()) {
+            return;
+        }
+        cacheMetrics.recordWrite(KEYSPACE_VIEWERS, "pipelined-pfadd", () ->
+                redisTemplateForString.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        for (Long postId : postIds) {
+                            String key = VIEWERS_KEY_PREFIX + postId;
+                            ops.opsForHyperLogLog().add(key, String.valueOf(userId));
+                            ops.expire(key, ttl);
+                        }
+                        ops.opsForSet().add(VIEWERS_DIRTY_KEY, postIds.stream().map(String::valueOf).toArray(String[]::new));
+                        return null;
+                    }
+                }));
+    }
+
+    public Map<Long, Long> countViewers(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> ids = List.copyOf(postIds);
+        List<Object> counts = cacheMetrics.record(KEYSPACE_VIEWERS, "pipelined-pfcount", () ->
+                redisTemplateForString.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        for (Long postId : ids) {
+                            ops.opsForHyperLogLog().size(VIEWERS_KEY_PREFIX + postId);
+                        }
+                        return null;
+                    }
+                }), value -> CacheMetrics.SUCCESS);
+        Map<Long, Long> viewers = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            viewers.put(ids.get(i), counts.get(i) instanceof Long count ? count : 0L);
+        }
+        return viewers;
+    }
+
+    /**
+     * Removes and returns up to {@code count} posts whose viewers changed since they were last persisted.
+     */
+    public List<Long> popDirtyViewerPosts(int count) {
+        List<String> postIds = cacheMetrics.record(KEYSPACE_VIEWERS, "spop", () ->
+                redisTemplateForString.opsForSet().pop(VIEWERS_DIRTY_KEY, count), value -> CacheMetrics.SUCCESS);
+        return postIds == null ? List.of() : postIds.stream().map(Long::valueOf).toList();
+    }
+
+    public void markViewerPostsDirty(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return;
+        }
+        cacheMetrics.recordWrite(KEYSPACE_VIEWERS, "sadd", () ->
+                redisTemplateForString.opsForSet().add(VIEWERS_DIRTY_KEY, postIds.stream().map(String::valueOf).toArray(String[]::new)));
+    }
+
+    /**
+     * Returns the raw HyperLogLog of each post, for persisting. Posts without one are left out.
+     */
+    public Map<Long, byte[]> getViewerRegisters(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> ids = List.copyOf(postIds);
+        List<Object> values = cacheMetrics.record(KEYSPACE_VIEWERS, "pipelined-get", () ->
+                redisTemplateForString.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Long postId : ids) {
+                        connection.stringCommands().get(rawKey(VIEWERS_KEY_PREFIX + postId));
+                    }
+                    return null;
+                }, RedisSerializer.byteArray()), value -> CacheMetrics.SUCCESS);
+        Map<Long, byte[]> registers = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (values.get(i) instanceof byte[] bytes) {
+                registers.put(ids.get(i), bytes);
+            }
+        }
+        return registers;
+    }
+
+    /**
+     * Merges persisted registers back into the post's HyperLogLog, after the key expired or Redis lost it. The
+     * union is idempotent, so merging registers that are already included changes nothing.
+     */
+    public void mergeViewerRegisters(Long postId, byte[] registers, Duration ttl) {
+        byte[] key = rawKey(VIEWERS_KEY_PREFIX + postId);
+        byte[] restoreKey = rawKey(VIEWERS_KEY_PREFIX + postId + ":restore");
+        cacheMetrics.recordWrite(KEYSPACE_VIEWERS, "pfmerge", () ->
+                redisTemplateForString.execute((RedisCallback<Object>) connection -> {
+                    connection.stringCommands().set(restoreKey, registers);
+                    connection.hyperLogLogCommands().pfMerge(key, key, restoreKey);
+                    connection.keyCommands().del(restoreKey);
+                    connection.keyCommands().expire(key, ttl.toSeconds());
+                    return null;
+                }));
+    }
+
+    private byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
     }
 
     public Long getCachedUserIdByUsername(String username) {
         String cacheKey = "user:username:" + username;
-        Number rawValue = redisTemplateForLong.opsForValue().get(cacheKey);
+        Number rawValue = cacheMetrics.recordLookup(KEYSPACE_USERNAME, "get", () ->
+                redisTemplateForLong.opsForValue().get(cacheKey));
         return rawValue != null ? rawValue.longValue() : null;
     }
 
     public User getCachedUserById(Long userId) {
         String cacheKey = "user:id:" + userId;
-        return redisTemplateForUser.opsForValue().get(cacheKey);
+        return cacheMetrics.recordLookup(KEYSPACE_USER, "get", () ->
+                redisTemplateForUser.opsForValue().get(cacheKey));
     }
 
     public UserPublicData getCachedUserPublicData(Long userId) {
         String cacheKey = "user:public:" + userId;
-        return redisTemplateForUserPublicData.opsForValue().get(cacheKey);
+        return cacheMetrics.recordLookup(KEYSPACE_USER_PUBLIC, "get", () ->
+                redisTemplateForUserPublicData.opsForValue().get(cacheKey));
     }
 
     private void withLock(String lockKey, Runnable action) {
         Lock lock = redisLockRegistry.obtain(lockKey);
         boolean locked = false;
         try {
-            locked = lock.tryLock(1, TimeUnit.SECONDS);
+            cacheMetrics.lockWaitStarted();
+            try {
+                locked = lock.tryLock(1, TimeUnit.SECONDS);
+            } finally {
+                cacheMetrics.lockWaitFinished();
+            }
             if (locked) {
                 action.run();
             } else {
@@ -181,10 +600,24 @@ public class CacheService {
     }
 
     public boolean trySetLock(String key, String value, long timeoutSeconds) {
-        return redisTemplateForString.opsForValue().setIfAbsent(key, value, timeoutSeconds, TimeUnit.SECONDS);
+        return cacheMetrics.record(KEYSPACE_LOCK, "acquire", () ->
+                redisTemplateForString.opsForValue().setIfAbsent(key, value, timeoutSeconds, TimeUnit.SECONDS),
+                acquired -> Boolean.TRUE.equals(acquired) ? CacheMetrics.SUCCESS : "contended");
     }
 
     public void deleteLock(String key) {
-        redisTemplateForString.delete(key);
+        cacheMetrics.recordWrite(KEYSPACE_LOCK, "release", () -> redisTemplateForString.delete(key));
+    }
+
+    /**
+     * Pauses the calling thread before retrying a contended lock, counting it as an in-flight lock wait.
+     */
+    public void waitForLock(long millis) throws InterruptedException {
+        cacheMetrics.lockWaitStarted();
+        try {
+            Thread.sleep(millis);
+        } finally {
+            cacheMetrics.lockWaitFinished();
+        }
     }
 }
@@ -0,0 +1,120 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.consumer.FailedRecordRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Moves dead letters back to their source topic once the cause of the failure has been fixed. Records are copied
+ * byte for byte, minus the headers added when they were dead-lettered, and the replay position is committed so
+ * each dead letter is replayed once.
+ */
+@Service
+public class DeadLetterReplayService {
+    public static final Set<String> REPLAYABLE_TOPICS = Set.of("post-created-topic", "post-deleted-topic", "like-events-topic");
+
+    private static final String DLT_HEADER_PREFIX = KafkaHeaders.PREFIX + "dlt-";
+
+    private final Logger logger = LoggerFactory.getLogger(DeadLetterReplayService.class);
+    private final ConsumerFactory<byte[], byte[]> deadLetterConsumerFactory;
+    private final KafkaTemplate<Object, Object> deadLetterKafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Duration pollTimeout;
+
+    public DeadLetterReplayService(ConsumerFactory<byte[], byte[]> deadLetterConsumerFactory,
+                                   KafkaTemplate<Object, Object> deadLetterKafkaTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${kafka.dead-letters.replay.poll-timeout-ms:2000}") long pollTimeoutMs) {
+        this.deadLetterConsumerFactory = deadLetterConsumerFactory;
+        this.deadLetterKafkaTemplate = deadLetterKafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.pollTimeout = Duration.ofMillis(pollTimeoutMs);
+    }
+
+    /**
+     * Republishes up to {@code maxRecords} dead letters of the given source topic.
+     *
+     * @return the number of records replayed
+     */
+    public synchronized int replay(String sourceTopic, int maxRecords) {
+        if (!REPLAYABLE_TOPICS.contains(sourceTopic)) {
+            throw new IllegalArgumentException("Unknown topic: " + sourceTopic);
+        }
+        if (maxRecords <= 0) {
+            throw new IllegalArgumentException("maxRecords must be positive");
+        }
+        String deadLetterTopic = sourceTopic + FailedRecordRouter.DLT_SUFFIX;
+        int replayed = 0;
+
+        try (Consumer<byte[], byte[]> consumer = deadLetterConsumerFactory.createConsumer()) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(deadLetterTopic);
+            if (partitions == null || partitions.isEmpty()) {
+                return 0;
+            }
+            consumer.assign(partitions.stream().map(partition -> new TopicPartition(deadLetterTopic, partition.partition())).toList());
+
+            while (replayed < maxRecords) {
+                ConsumerRecords<byte[], byte[]> records = consumer.poll(pollTimeout);
+                if (records.isEmpty()) {
+                    break;
+                }
+                List<CompletableFuture<?>> sends = new ArrayList<>();
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                for (ConsumerRecord<byte[], byte[]> record : records) {
+                    if (replayed == maxRecords) {
+                        break;
+                    }
+                    sends.add(deadLetterKafkaTemplate.send(toSourceRecord(sourceTopic, record)));
+                    offsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+                    replayed++;
+                }
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get();
+                consumer.commitSync(offsets);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replaying dead letters of " + sourceTopic, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to replay dead letters of " + sourceTopic, e.getCause());
+        }
+
+        logger.info("Replayed {} dead letters to {}", replayed, sourceTopic);
+        meterRegistry.counter("kafka.consumer.dead-letters.replayed", "topic", sourceTopic).increment(replayed);
+        return replayed;
+    }
+
+    private ProducerRecord<Object, Object> toSourceRecord(String sourceTopic, ConsumerRecord<byte[], byte[]> record) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith(DLT_HEADER_PREFIX) && !header.key().startsWith(SerializationUtils.DESERIALIZER_EXCEPTION_HEADER_PREFIX)) {
+                headers.add(header);
+            }
+        }
+        return new ProducerRecord<>(sourceTopic, null, record.key(), record.value(), headers);
+    }
+}
@@ -1,6 +1,5 @@
 package com.toiter.postservice.service;
 
-import com.toiter.postservice.entity.Like;
 import com.toiter.postservice.model.PostData;
 import com.toiter.postservice.model.PostLikedEvent;
 import com.toiter.postservice.model.PostUnlikedEvent;
@@ -18,11 +17,13 @@ public class LikeService {
     private final Logger logger = LoggerFactory.getLogger(LikeService.class);
     private final CacheService cacheService;
     private final KafkaProducer kafkaProducer;
+    private final ReadYourWritesTracker readYourWritesTracker;
 
-    public LikeService(LikeRepository likeRepository, CacheService cacheService, KafkaProducer kafkaProducer) {
+    public LikeService(LikeRepository likeRepository, CacheService cacheService, KafkaProducer kafkaProducer, ReadYourWritesTracker readYourWritesTracker) {
         this.likeRepository = likeRepository;
         this.cacheService = cacheService;
         this.kafkaProducer = kafkaProducer;
+        this.readYourWritesTracker = readYourWritesTracker;
     }
 
     @Transactional
@@ -36,19 +37,15 @@ public class LikeService {
             throw new ResourceNotFoundException("O post foi deletado e não pode ser curtido.");
         }
 
-        if(likeRepository.existsByUserIdAndPostId(userId, postId)) {
+        // A concurrent like of the same post by the same user inserts nothing and sends no event
+        if (likeRepository.insertIfAbsent(postId, userId).isEmpty()) {
             logger.warn("User ID: {} already liked post ID: {}", userId, postId);
             return;
         }
 
-        Like like = new Like(
-                postId,
-                userId
-        );
-        likeRepository.save(like);
-
         cacheService.setLikeStatus(userId, postId, true);
         kafkaProducer.sendLikedEvent(new PostLikedEvent(postId, userId));
+        readYourWritesTracker.recordWrite(userId);
 
         logger.debug("Post with ID: {} liked by user ID: {}", postId, userId);
 
@@ -65,18 +62,14 @@ public class LikeService {
             throw new IllegalStateException("O post foi deletado e não pode ter curtida removida.");
         }
 
-        try {
-            boolean likeExisted = likeRepository.existsByUserIdAndPostId(userId, postId);
-            if (likeExisted) {
-                likeRepository.deleteByPostIdAndUserId(postId, userId);
-                cacheService.setLikeStatus(userId, postId, false);
-                kafkaProducer.sendLikedEvent(new PostUnlikedEvent(postId, userId));
-                logger.debug("Post with ID: {} unliked by user ID: {}", postId, userId);
-            } else {
-                logger.warn("Like not found for post ID: {} and user ID: {}", postId, userId);
-            }
-        } catch (ResourceNotFoundException e) {
+        if (likeRepository.deleteReturningId(postId, userId).isEmpty()) {
+            logger.warn("Like not found for post ID: {} and user ID: {}", postId, userId);
+            return;
         }
+        cacheService.setLikeStatus(userId, postId, false);
+        kafkaProducer.sendLikedEvent(new PostUnlikedEvent(postId, userId));
+        readYourWritesTracker.recordWrite(userId);
+        logger.debug("Post with ID: {} unliked by user ID: {}", postId, userId);
     }
 
     public boolean userLikedPost(Long userId, Long postId) {
@@ -108,7 +101,7 @@ public class LikeService {
             return existsInDb;
         } else {
             try {
-                Thread.sleep(50);
+                cacheService.waitForLock(50);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 logger.error("Interrupted while waiting for lock on like: user {} post {}", userId, postId, e);
@@ -0,0 +1,91 @@
+package com.toiter.postservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.toiter.postservice.entity.OutboxEvent;
+import com.toiter.postservice.model.PostEvent;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.repository.OutboxRepository;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transactional outbox for post events. Events are stored in {@code pst.outbox} in the same database transaction
+ * as the post change and published to Kafka later by {@link com.toiter.postservice.producer.OutboxRelay}.
+ */
+@Service
+public class OutboxService {
+    private final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+    private final OutboxRepository outboxRepository;
+    private final KafkaProducer kafkaProducer;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxRepository outboxRepository, KafkaProducer kafkaProducer, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaProducer = kafkaProducer;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String topic, PostEvent event) {
+        try {
+            String payload = objectMapper.writeValueAsString(event);
+            outboxRepository.save(new OutboxEvent(topic, event.getPost().getId(), event.getClass().getName(), payload));
+            logger.debug("Event queued in outbox for topic {}: {}", topic, event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize outbox event: " + event, e);
+        }
+    }
+
+    /**
+     * Publishes the oldest pending rows in order, waits for the broker to acknowledge them and marks them as published.
+     * Rows held by a relay on another instance are skipped rather than waited for. If the broker doesn't acknowledge
+     * the batch in time the transaction rolls back, releasing the rows for the next run.
+     *
+     * @return the number of rows published
+     */
+    @Transactional
+    public int publishPending(int batchSize) {
+        List<OutboxEvent> pending = outboxRepository.lockPendingBatch(batchSize);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<ProducerRecord<String, PostEvent>> records = new ArrayList<>(pending.size());
+        for (OutboxEvent outboxEvent : pending) {
+            // The record carries the time the event was written, so consumer latency includes the time spent in the outbox
+            long timestamp = outboxEvent.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            records.add(new ProducerRecord<>(outboxEvent.getTopic(), null, timestamp, KafkaProducer.postKey(outboxEvent.getAggregateId()), deserialize(outboxEvent)));
+        }
+        kafkaProducer.sendPostEvents(records);
+        outboxRepository.markPublished(pending.stream().map(OutboxEvent::getId).toList(), LocalDateTime.now());
+        logger.debug("Published {} outbox events", pending.size());
+        return pending.size();
+    }
+
+    public LocalDateTime getOldestPendingCreatedAt() {
+        return outboxRepository.findOldestPendingCreatedAt();
+    }
+
+    @Transactional
+    public int purgePublishedBefore(LocalDateTime before) {
+        return outboxRepository.deletePublishedBefore(before);
+    }
+
+    private PostEvent deserialize(OutboxEvent outboxEvent) {
+        try {
+            Class<? extends PostEvent> type = Class.forName(outboxEvent.getEventType()).asSubclass(PostEvent.class);
+            return objectMapper.readValue(outboxEvent.getPayload(), type);
+        } catch (ClassNotFoundException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read outbox event " + outboxEvent.getId(), e);
+        }
+    }
+}
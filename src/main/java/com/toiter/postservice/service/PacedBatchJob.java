@@ -0,0 +1,141 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.CacheRebuildProgress;
+import com.toiter.postservice.model.CacheRebuildProgress.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job that reads records in batches from a {@link Source} and hands each batch to {@link #write(List)},
+ * paced to a number of records read per second. Only one run at a time; its progress is reported as a
+ * {@link CacheRebuildProgress}.
+ *
+ * @param <T> the items a batch carries to the sink
+ */
+public abstract class PacedBatchJob<T> {
+
+    /**
+     * Where a run reads its records from. Opened at the start of each run and closed at its end.
+     */
+    protected interface Source<T> extends AutoCloseable {
+
+        /** Number of records the run expects to read, for the progress only. */
+        long total();
+
+        /** The next batch, or {@code null} once every record has been read. */
+        Batch<T> next() throws InterruptedException;
+
+        @Override
+        default void close() {
+        }
+    }
+
+    /**
+     * Items to write, taken from {@code read} records. Records without an item (tombstones, duplicates) count as read.
+     */
+    protected record Batch<T>(long read, List<T> items) {
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final String description;
+    private final String threadName;
+    private final int ratePerSecond;
+
+    private volatile State state = State.IDLE;
+    private volatile long totalRecords;
+    private final AtomicLong recordsRead = new AtomicLong();
+    private final AtomicLong postsWritten = new AtomicLong();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    protected PacedBatchJob(String description, String threadName, int ratePerSecond) {
+        this.description = description;
+        this.threadName = threadName;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    protected abstract Source<T> openSource();
+
+    /**
+     * Writes one batch.
+     *
+     * @return the number of posts actually written
+     */
+    protected abstract int write(List<T> items);
+
+    /**
+     * Starts a run in the background.
+     *
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public synchronized CacheRebuildProgress start() {
+        if (state == State.RUNNING) {
+            throw new IllegalStateException("A " + description + " is already running");
+        }
+        state = State.RUNNING;
+        totalRecords = 0;
+        recordsRead.set(0);
+        postsWritten.set(0);
+        startedAt = Instant.now();
+        finishedAt = null;
+        error = null;
+        Thread.ofVirtual().name(threadName).start(this::run);
+        return progress();
+    }
+
+    public CacheRebuildProgress progress() {
+        return new CacheRebuildProgress(state, totalRecords, recordsRead.get(), postsWritten.get(), startedAt, finishedAt, error);
+    }
+
+    void run() {
+        try {
+            runBatches();
+            finish(State.COMPLETED, null);
+            logger.info("The {} is done, {} records read and {} posts written", description, recordsRead.get(), postsWritten.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(State.FAILED, "Interrupted");
+        } catch (RuntimeException e) {
+            logger.error("The {} failed after {} records", description, recordsRead.get(), e);
+            finish(State.FAILED, e.getMessage());
+        }
+    }
+
+    private void runBatches() throws InterruptedException {
+        try (Source<T> source = openSource()) {
+            totalRecords = source.total();
+            long startNanos = System.nanoTime();
+            Batch<T> batch;
+            while ((batch = source.next()) != null) {
+                if (!batch.items().isEmpty()) {
+                    postsWritten.addAndGet(write(batch.items()));
+                }
+                recordsRead.addAndGet(batch.read());
+                pace(startNanos);
+            }
+        }
+    }
+
+    private void pace(long startNanos) throws InterruptedException {
+        if (ratePerSecond > 0) {
+            // Sleep until the records read so far fit within the configured rate
+            long dueMillis = recordsRead.get() * 1000 / ratePerSecond;
+            long elapsedMillis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+            if (dueMillis > elapsedMillis) {
+                Thread.sleep(dueMillis - elapsedMillis);
+            }
+        }
+    }
+
+    private synchronized void finish(State finalState, String message) {
+        error = message;
+        finishedAt = Instant.now();
+        state = finalState;
+    }
+}
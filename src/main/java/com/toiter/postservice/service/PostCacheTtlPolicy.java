@@ -0,0 +1,156 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.PostData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decides how long a post stays in Redis based on its age and on how often it has been read recently.
+ * Access frequency is tracked in memory with an exponentially decaying counter per post, so recording a
+ * read costs no extra Redis round trip.
+ * <p>
+ * The counters are per instance: each instance only sees the reads it served, and tracks at most
+ * {@code cache.post.ttl.max-tracked-posts} posts. Past that limit the coldest counters are dropped, the hottest
+ * are kept.
+ */
+@Component
+public class PostCacheTtlPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(PostCacheTtlPolicy.class);
+
+    public enum Tier {
+        SHORT, LONG, PINNED
+    }
+
+    private final Duration shortTtl;
+    private final Duration longTtl;
+    private final Duration pinnedTtl;
+    private final Duration recentAge;
+    private final double warmThreshold;
+    private final double hotThreshold;
+    private final double halfLifeMillis;
+    private final int maxTrackedPosts;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<Long, AccessCounter> counters = new ConcurrentHashMap<>();
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+
+    @Autowired
+    public PostCacheTtlPolicy(@Value("${cache.post.ttl.short-seconds:300}") long shortTtlSeconds,
+                              @Value("${cache.post.ttl.long-seconds:3600}") long longTtlSeconds,
+                              @Value("${cache.post.ttl.pinned-seconds:86400}") long pinnedTtlSeconds,
+                              @Value("${cache.post.ttl.recent-age-hours:48}") long recentAgeHours,
+                              @Value("${cache.post.ttl.warm-threshold:3}") double warmThreshold,
+                              @Value("${cache.post.ttl.hot-threshold:50}") double hotThreshold,
+                              @Value("${cache.post.ttl.half-life-seconds:600}") long halfLifeSeconds,
+                              @Value("${cache.post.ttl.max-tracked-posts:100000}") int maxTrackedPosts) {
+        this(Duration.ofSeconds(shortTtlSeconds), Duration.ofSeconds(longTtlSeconds), Duration.ofSeconds(pinnedTtlSeconds),
+                Duration.ofHours(recentAgeHours), warmThreshold, hotThreshold, Duration.ofSeconds(halfLifeSeconds),
+                maxTrackedPosts, Clock.systemDefaultZone());
+    }
+
+    PostCacheTtlPolicy(Duration shortTtl, Duration longTtl, Duration pinnedTtl, Duration recentAge,
+                       double warmThreshold, double hotThreshold, Duration halfLife, int maxTrackedPosts, Clock clock) {
+        this.shortTtl = shortTtl;
+        this.longTtl = longTtl;
+        this.pinnedTtl = pinnedTtl;
+        this.recentAge = recentAge;
+        this.warmThreshold = warmThreshold;
+        this.hotThreshold = hotThreshold;
+        this.halfLifeMillis = halfLife.toMillis();
+        this.maxTrackedPosts = maxTrackedPosts;
+        this.clock = clock;
+    }
+
+    public void recordAccess(Long postId) {
+        if (postId == null) return;
+        counters.computeIfAbsent(postId, id -> new AccessCounter()).hit(clock.millis(), halfLifeMillis);
+        if (counters.size() > maxTrackedPosts) {
+            compact();
+        }
+    }
+
+    public double accessScore(Long postId) {
+        AccessCounter counter = counters.get(postId);
+        return counter == null ? 0 : counter.score(clock.millis(), halfLifeMillis);
+    }
+
+    public Tier tierFor(PostData postData) {
+        if (postData.isDeleted()) {
+            return Tier.SHORT;
+        }
+        double score = accessScore(postData.getId());
+        if (score >= hotThreshold) {
+            return Tier.PINNED;
+        }
+        if (score >= warmThreshold || isRecent(postData.getCreatedAt())) {
+            return Tier.LONG;
+        }
+        return Tier.SHORT;
+    }
+
+    public Duration ttlFor(PostData postData) {
+        return switch (tierFor(postData)) {
+            case SHORT -> shortTtl;
+            case LONG -> longTtl;
+            case PINNED -> pinnedTtl;
+        };
+    }
+
+    private boolean isRecent(LocalDateTime createdAt) {
+        // Posts without a creation date were just built from a fresh entity, treat them as new
+        return createdAt == null || createdAt.isAfter(LocalDateTime.now(clock).minus(recentAge));
+    }
+
+    /**
+     * Drops the coldest counters until 90% of the limit is left, so the sort isn't repeated on every new post.
+     */
+    private void compact() {
+        if (!compacting.compareAndSet(false, true)) return;
+        try {
+            long now = clock.millis();
+            int before = counters.size();
+            int excess = before - maxTrackedPosts * 9 / 10;
+            if (excess <= 0) return;
+            counters.entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), entry.getValue().score(now, halfLifeMillis)))
+                    .sorted(Map.Entry.comparingByValue())
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(counters::remove);
+            logger.debug("Compacted post access counters from {} to {} entries", before, counters.size());
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private static final class AccessCounter {
+        private double score;
+        private long updatedAt;
+
+        synchronized void hit(long now, double halfLifeMillis) {
+            score = decayed(now, halfLifeMillis) + 1;
+            updatedAt = now;
+        }
+
+        synchronized double score(long now, double halfLifeMillis) {
+            return decayed(now, halfLifeMillis);
+        }
+
+        private double decayed(long now, double halfLifeMillis) {
+            if (score == 0) return 0;
+            long elapsed = Math.max(0, now - updatedAt);
+            return score * Math.pow(0.5, elapsed / halfLifeMillis);
+        }
+    }
+}
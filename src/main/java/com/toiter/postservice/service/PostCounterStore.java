@@ -0,0 +1,59 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.config.KafkaStreamsConfig;
+import com.toiter.postservice.model.PostCounters;
+import com.toiter.postservice.model.PostData;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Reads per-post counters from the local Kafka Streams state store. Only partitions hosted on this instance, as
+ * active or standby, are queried; anything else returns empty and callers fall back to the database counts.
+ */
+@Service
+public class PostCounterStore {
+    private final Logger logger = LoggerFactory.getLogger(PostCounterStore.class);
+    private final ObjectProvider<StreamsBuilderFactoryBean> streamsBuilderFactoryBean;
+
+    public PostCounterStore(ObjectProvider<StreamsBuilderFactoryBean> streamsBuilderFactoryBean) {
+        this.streamsBuilderFactoryBean = streamsBuilderFactoryBean;
+    }
+
+    public Optional<PostCounters> find(Long postId) {
+        StreamsBuilderFactoryBean factoryBean = streamsBuilderFactoryBean.getIfAvailable();
+        if (factoryBean == null) {
+            return Optional.empty();
+        }
+        KafkaStreams kafkaStreams = factoryBean.getKafkaStreams();
+        if (kafkaStreams == null || kafkaStreams.state() != KafkaStreams.State.RUNNING) {
+            return Optional.empty();
+        }
+        try {
+            ReadOnlyKeyValueStore<String, PostCounters> store = kafkaStreams.store(
+                    StoreQueryParameters.fromNameAndType(KafkaStreamsConfig.POST_COUNTERS_STORE, QueryableStoreTypes.<String, PostCounters>keyValueStore())
+                            .enableStaleStores());
+            PostCounters counters = store.get(String.valueOf(postId));
+            // Posts created before the topology started have no creation event and partial counts
+            return counters != null && counters.isCreated() ? Optional.of(counters) : Optional.empty();
+        } catch (RuntimeException e) {
+            logger.debug("Post counters not available locally for post ID {}: {}", postId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public static void applyTo(PostData postData, PostCounters counters) {
+        postData.setLikesCount(Math.toIntExact(counters.getLikes()));
+        postData.setRepliesCount(Math.toIntExact(counters.getReplies()));
+        postData.setRepostsCount(Math.toIntExact(counters.getReposts()));
+        postData.setViewCount(Math.toIntExact(counters.getViews()));
+    }
+}
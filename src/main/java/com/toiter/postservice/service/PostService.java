@@ -1,50 +1,73 @@
 package com.toiter.postservice.service;
 
 import com.toiter.postservice.entity.Post;
-import com.toiter.postservice.entity.View;
 import com.toiter.postservice.model.*;
 import com.toiter.postservice.producer.KafkaProducer;
 import com.toiter.postservice.repository.PostRepository;
-import com.toiter.postservice.repository.ViewRepository;
 import com.toiter.userservice.model.UserResponse;
 import jakarta.validation.constraints.NotNull;
 import org.apache.kafka.common.errors.ResourceNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class PostService {
 
     private final UserClientService userClientService;
     private final PostRepository postRepository;
-    private final KafkaProducer kafkaProducer;
     private final Logger logger = LoggerFactory.getLogger(PostService.class);
-    private final ViewRepository viewRepository;
     private final LikeService likeService;
     private final CacheService cacheService;
     private final ImageService imageService;
+    private final OutboxService outboxService;
+    private final PostCounterStore postCounterStore;
+    private final UniqueViewerCounter uniqueViewerCounter;
+    private final ViewIngestionBuffer viewIngestionBuffer;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AuthorPostCounter authorPostCounter;
+    private final TransactionTemplate transactionTemplate;
+    private final KafkaProducer kafkaProducer;
+
+    static final int MAX_VIEWS_PER_REQUEST = 100;
+    static final int MAX_AUTHORS_PER_COUNT_REQUEST = 500;
 
-    public PostService(UserClientService userClientService, PostRepository postRepository, KafkaProducer kafkaProducer, ViewRepository viewRepository, LikeService likeService, CacheService cacheService, ImageService imageService) {
+    public PostService(UserClientService userClientService, PostRepository postRepository, LikeService likeService, CacheService cacheService, ImageService imageService, OutboxService outboxService, PostCounterStore postCounterStore, UniqueViewerCounter uniqueViewerCounter, ViewIngestionBuffer viewIngestionBuffer, ReadYourWritesTracker readYourWritesTracker, AuthorPostCounter authorPostCounter, TransactionTemplate transactionTemplate, KafkaProducer kafkaProducer) {
         this.userClientService = userClientService;
         this.postRepository = postRepository;
-        this.kafkaProducer = kafkaProducer;
-        this.viewRepository = viewRepository;
         this.likeService = likeService;
         this.cacheService = cacheService;
         this.imageService = imageService;
+        this.outboxService = outboxService;
+        this.postCounterStore = postCounterStore;
+        this.uniqueViewerCounter = uniqueViewerCounter;
+        this.viewIngestionBuffer = viewIngestionBuffer;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.authorPostCounter = authorPostCounter;
+        this.transactionTemplate = transactionTemplate;
+        this.kafkaProducer = kafkaProducer;
     }
 
-    @Transactional
+    /**
+     * Saves the post and its outbox event in one transaction. The cache write and the user-service call happen
+     * after the commit, so a rollback never leaves a cached post behind and the HTTP call holds no connection.
+     */
     public PostData createPost(PostRequest post, Long userId) {
         logger.debug("Creating post for user ID: {}", userId);
         if(post.content() == null || post.content().isEmpty()){
@@ -59,51 +82,154 @@ public class PostService {
             }
         }
 
-        Post newPost = new Post(
-                post.parentPostId(),
-                post.repostParentId(),
-                userId,
-                post.content(),
-                post.mediaUrl(),
-                post.mediaWidth(),
-                post.mediaHeight()
-        );
-        postRepository.save(newPost);
+        Post newPost = transactionTemplate.execute(status -> {
+            Post created = new Post(
+                    post.parentPostId(),
+                    post.repostParentId(),
+                    userId,
+                    post.content(),
+                    post.mediaUrl(),
+                    post.mediaWidth(),
+                    post.mediaHeight()
+            );
+            postRepository.save(created);
+            authorPostCounter.postCreated(created);
+            outboxService.enqueue("post-created-topic", new PostCreatedEvent(created));
+            return created;
+        });
+        readYourWritesTracker.recordWrite(userId);
+
+        PostData postData = new PostData(newPost);
 
-        PostCreatedEvent event = new PostCreatedEvent(newPost);
         try {
-            kafkaProducer.sendPostCreatedEvent(event);
-            PostData postData = new PostData(newPost);
+            cacheService.cachePostData(postData);
+        } catch (Exception e) {
+            logger.error("Failed to cache post data for post ID: {}", newPost.getId(), e);
+        }
 
-            try {
-                cacheService.cachePostData(postData);
-            } catch (Exception e) {
-                logger.error("Failed to cache post data for post ID: {}", newPost.getId(), e);
-            }
+        UserResponse userResponse = userClientService.getUserById(userId);
+        postData.setUsername(userResponse.getUsername());
+        postData.setDisplayName(userResponse.getDisplayName());
+        String userProfilePicture = userResponse.getProfileImageUrl();
+        postData.setProfilePicture(userProfilePicture);
 
-            UserResponse userResponse = userClientService.getUserById(userId);
-            postData.setUsername(userResponse.getUsername());
-            postData.setDisplayName(userResponse.getDisplayName());
-            String userProfilePicture = userResponse.getProfileImageUrl();
-            postData.setProfilePicture(userProfilePicture);
-            
-            if (postData.getMediaUrl() != null && !postData.getMediaUrl().isEmpty()) {
-                postData.setMediaUrl(imageService.getPublicUrl(postData.getMediaUrl()));
-            }
+        if (postData.getMediaUrl() != null && !postData.getMediaUrl().isEmpty()) {
+            postData.setMediaUrl(imageService.getPublicUrl(postData.getMediaUrl()));
+        }
 
-            postData.setIsLiked(false);
+        postData.setIsLiked(false);
 
-            if(postData.getRepostParentId() != null){
-                Optional<PostData> repostedPostData = getPostById(postData.getRepostParentId(), -1, userId);
-                repostedPostData.ifPresent(postData::setRepostPostData);
-            }
+        if(postData.getRepostParentId() != null){
+            Optional<PostData> repostedPostData = getPostById(postData.getRepostParentId(), -1, userId);
+            repostedPostData.ifPresent(postData::setRepostPostData);
+        }
 
-            return postData;
+        return postData;
+    }
+
+    /**
+     * Loads a post on a cache miss. When the streams counter store has the post's counters locally, only the post
+     * row is read; otherwise the counts are computed by the database. In HyperLogLog mode the unique viewer estimate
+     * is added to the view count, which then only holds the views counted in rows mode before the switch.
+     */
+    private Optional<PostData> loadPostData(Long id) {
+        Optional<PostCounters> counters = postCounterStore.find(id);
+        Optional<PostData> postData;
+        if (counters.isEmpty()) {
+            postData = postRepository.fetchPostData(id);
+        } else {
+            postData = postRepository.findById(id).map(post -> {
+                PostData loaded = new PostData(post);
+                PostCounterStore.applyTo(loaded, counters.get());
+                return loaded;
+            });
+        }
+        // In HyperLogLog mode views have no rows or events, the estimate counts every viewer since the switch
+        if (uniqueViewerCounter.isEnabled()) {
+            postData.ifPresent(loaded -> addViewerEstimate(loaded, uniqueViewerCounter.estimate(id)));
+        }
+        return postData;
+    }
+
+    /**
+     * Bulk version of {@link #loadPostData(Long)}: one query for all the posts, then the same counter overrides.
+     */
+    private List<PostData> loadPostData(Collection<Long> ids) {
+        List<PostData> loaded = postRepository.fetchPostDataByIds(ids);
+        for (PostData postData : loaded) {
+            postCounterStore.find(postData.getId()).ifPresent(counters -> PostCounterStore.applyTo(postData, counters));
         }
-        catch (Exception e) {
-            logger.error("Failed to send event to Kafka", e);
-            throw new RuntimeException("Failed to send event to Kafka");
+        if (uniqueViewerCounter.isEnabled() && !loaded.isEmpty()) {
+            Map<Long, Long> estimates = uniqueViewerCounter.estimateAll(loaded.stream().map(PostData::getId).toList());
+            loaded.forEach(postData -> addViewerEstimate(postData, estimates.getOrDefault(postData.getId(), 0L)));
         }
+        return loaded;
+    }
+
+    private static void addViewerEstimate(PostData postData, long estimate) {
+        long baseline = postData.getViewCount() == null ? 0 : postData.getViewCount();
+        postData.setViewCount(Math.toIntExact(baseline + estimate));
+    }
+
+    /**
+     * Returns the posts from the cache, loading every miss with a single query and caching them in one pipeline.
+     * Posts that are deleted or don't exist are left out and, as in {@link #getPostById}, deleted posts loaded from the
+     * database are not cached. The posts this call cached are also published as snapshots, so the snapshot topic
+     * covers posts no consumer has touched since it was introduced.
+     */
+    private Map<Long, PostData> fetchPostsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, PostData> posts = new HashMap<>(cacheService.getCachedPostsForRead(ids));
+        List<Long> misses = ids.stream().filter(id -> !posts.containsKey(id)).distinct().toList();
+        // A post cached as deleted is a hit, it isn't loaded again
+        posts.values().removeIf(PostData::isDeleted);
+        if (!misses.isEmpty()) {
+            logger.debug("Loading {} of {} posts from the database", misses.size(), ids.size());
+            List<PostData> loaded = loadPostData(misses).stream().filter(postData -> !postData.isDeleted()).toList();
+            // Doesn't overwrite a fresher copy cached by a consumer in the meantime, nor publish it as a snapshot
+            kafkaProducer.sendPostSnapshots(cacheService.cachePostDataBatchIfAbsent(loaded));
+            loaded.forEach(postData -> posts.put(postData.getId(), postData));
+        }
+        return posts;
+    }
+
+    /**
+     * Current state of the posts, as published to the snapshot topic: the cached copy when there is one, since
+     * consumers keep it up to date, otherwise loaded from the database. Reads no user data and caches nothing.
+     */
+    public List<PostData> getPostSnapshots(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, PostData> cached = cacheService.getCachedPostsByIds(ids);
+        List<PostData> snapshots = new ArrayList<>(cached.values());
+        List<Long> misses = ids.stream().filter(id -> !cached.containsKey(id)).distinct().toList();
+        if (!misses.isEmpty()) {
+            snapshots.addAll(loadPostData(misses));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Hydrates a page of posts in the order of {@code ids}. A cold page costs one cache round trip and one query,
+     * plus one more of each for the posts its reposts point to.
+     */
+    public List<PostData> getPostsByIds(List<Long> ids, Long userId) {
+        Map<Long, PostData> posts = fetchPostsByIds(ids);
+        // Warms the cache for reposted posts so enrichment finds them there instead of loading them one by one
+        fetchPostsByIds(posts.values().stream()
+                .map(PostData::getRepostParentId)
+                .filter(Objects::nonNull)
+                .filter(id -> !posts.containsKey(id))
+                .collect(Collectors.toSet()));
+        return ids.stream()
+                .map(posts::get)
+                .filter(Objects::nonNull)
+                .map(postData -> enrichPostData(postData, userId, 0))
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     public Optional<PostData> getPostById(Long id, int depth, Long userId) {
@@ -126,7 +252,7 @@ public class PostService {
 
         String lockKey = "lock:post:" + id;
         if (cacheService.trySetLock(lockKey, "1", 10)) {
-            Optional<PostData> post = postRepository.fetchPostData(id);
+            Optional<PostData> post = loadPostData(id);
             if (post.isPresent()) {
                 if (post.get().isDeleted()) {
                     cacheService.deleteLock(lockKey);
@@ -135,6 +261,7 @@ public class PostService {
 
                 cacheService.cachePostData(post.get());
                 cacheService.deleteLock(lockKey);
+                kafkaProducer.sendPostSnapshots(List.of(post.get()));
 
                 UserResponse userResponse = userClientService.getUserById(post.get().getUserId());
                 post.get().setUsername(userResponse.getUsername());
@@ -164,7 +291,7 @@ public class PostService {
             return Optional.empty();
         } else {
             try {
-                Thread.sleep(50);
+                cacheService.waitForLock(50);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 logger.error("Interrupted while waiting for lock on post ID: {}", id, e);
@@ -178,55 +305,53 @@ public class PostService {
         logger.debug("Fetching posts by username: {}", username);
         Long userId = userClientService.getUserIdByUsername(username);
         Page<Long> postIds = postRepository.fetchIdsByUserId(userId, pageable);
-        List<PostData> posts = postIds.stream()
-                .map(postId -> getPostById(postId, 0, authenticatedUserId))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .toList();
+        List<PostData> posts = getPostsByIds(postIds.getContent(), authenticatedUserId);
         return new PageImpl<>(posts, pageable, postIds.getTotalElements());
     }
 
     public Page<PostData> getPostsByParentPostId(Long parentPostId, Pageable pageable, Long userId) {
         logger.debug("Fetching posts by parent post ID: {}", parentPostId);
         Page<Long> postIds = postRepository.findChildIdsByParentPostId(parentPostId, pageable);
-        List<PostData> posts = postIds.stream()
-                .map(postId -> getPostById(postId, 0, userId))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .toList();
+        List<PostData> posts = getPostsByIds(postIds.getContent(), userId);
         return new PageImpl<>(posts, pageable, postIds.getTotalElements());
     }
 
+    /**
+     * Soft deletes the post and enqueues its event in one transaction. The image is only removed from storage once
+     * the delete has committed, so a rollback never leaves a live post pointing at a missing image.
+     */
     public void deletePost(Long id, Long userId) {
         logger.debug("Deleting post with ID: {}", id);
-        Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post not found"));
-        Long postUserId = post.getUserId();
-
-        if (!postUserId.equals(userId)) {
-            throw new IllegalArgumentException("Usuário não tem permissão para deletar este post");
-        }
-        
-        String mediaUrl = post.getMediaUrl();
-        
-        post.setContent("");
-        post.setMediaUrl(null);
-        post.setDeletedAt(LocalDateTime.now());
-        post.setDeleted(true);
-
-        postRepository.save(post);
-        
+        String mediaUrl = transactionTemplate.execute(status -> {
+            Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post not found"));
+            Long postUserId = post.getUserId();
+
+            if (!postUserId.equals(userId)) {
+                throw new IllegalArgumentException("Usuário não tem permissão para deletar este post");
+            }
+
+            String deletedMediaUrl = post.getMediaUrl();
+            LocalDateTime deletedAt = LocalDateTime.now();
+            // A concurrent or repeated delete finds the post already deleted and changes nothing
+            if (postRepository.softDelete(id, deletedAt) == 0) {
+                logger.debug("Post with ID: {} was already deleted", id);
+                return null;
+            }
+            authorPostCounter.postDeleted(post);
+
+            post.setContent("");
+            post.setMediaUrl(null);
+            post.setDeletedAt(deletedAt);
+            post.setDeleted(true);
+
+            outboxService.enqueue("post-deleted-topic", new PostDeletedEvent(post));
+            return deletedMediaUrl;
+        });
+        readYourWritesTracker.recordWrite(userId);
+
         if (mediaUrl != null && !mediaUrl.isEmpty()) {
             imageService.deleteImage(mediaUrl);
         }
-
-        try {
-            PostDeletedEvent event = new PostDeletedEvent(post);
-            kafkaProducer.sendPostDeletedEvent(event);
-        }
-        catch (Exception e) {
-            logger.error("Failed to send event to Kafka", e);
-            throw new RuntimeException("Failed to send event to Kafka");
-        }
     }
 
     public PostThread getPostThread(Long parentPostId, Pageable pageable, Long userId) {
@@ -256,43 +381,86 @@ public class PostService {
         return new PostThread(parentPost, childPostsWithIds, hasNext, totalElements, totalPages, pageSize, currentPage);
     }
 
-    @Transactional
+    /**
+     * Records a view without waiting for it to be stored. Row mode hands it to the {@link ViewIngestionBuffer},
+     * which also skips views of deleted posts; HyperLogLog mode adds the viewer directly.
+     */
     public void viewPost(@NotNull(message = "Post ID cant be NULL") Long postId, Long userId) {
         logger.debug("Viewing post with ID: {} by user ID: {}", postId, userId);
 
-        PostData postData = cacheService.getCachedPostById(postId);
-
-        if (postData != null && postData.isDeleted()) {
+        if (uniqueViewerCounter.isEnabled()) {
+            PostData postData = cacheService.getCachedPostById(postId);
+            if (postData == null || !postData.isDeleted()) {
+                uniqueViewerCounter.record(postId, userId);
+            }
             return;
         }
 
-        try {
-            View view = new View(
-                    postId,
-                    userId
-            );
-            viewRepository.save(view);
+        if (!viewIngestionBuffer.offer(new PostView(userId, postId))) {
+            logger.debug("View buffer full, dropped view of post ID: {} by user ID: {}", postId, userId);
+        }
+    }
+
+    /**
+     * Records the views of several posts at once, e.g. everything scrolled into view on one screen. Repeated IDs
+     * count once; views of deleted or unknown posts are skipped when the batch is written.
+     */
+    public void viewPosts(List<Long> postIds, Long userId) {
+        if (postIds == null || postIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one post ID is required");
+        }
+        if (postIds.size() > MAX_VIEWS_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_VIEWS_PER_REQUEST + " post IDs can be viewed per request");
+        }
+        Set<Long> uniqueIds = new LinkedHashSet<>(postIds.size());
+        for (Long postId : postIds) {
+            if (postId == null || postId <= 0) {
+                throw new IllegalArgumentException("Invalid post ID: " + postId);
+            }
+            uniqueIds.add(postId);
+        }
+        logger.debug("Viewing {} posts by user ID: {}", uniqueIds.size(), userId);
 
-            kafkaProducer.sendPostViewedEvent(new PostViewedEvent(postId, userId));
+        if (uniqueViewerCounter.isEnabled()) {
+            Map<Long, PostData> cachedPosts = cacheService.getCachedPostsByIds(uniqueIds);
+            uniqueIds.removeIf(postId -> cachedPosts.containsKey(postId) && cachedPosts.get(postId).isDeleted());
+            uniqueViewerCounter.recordAll(uniqueIds, userId);
+            return;
+        }
 
-        } catch (DataIntegrityViolationException e) {
+        List<PostView> views = uniqueIds.stream().map(postId -> new PostView(userId, postId)).toList();
+        int accepted = viewIngestionBuffer.offerAll(views);
+        if (accepted < views.size()) {
+            logger.debug("View buffer full, dropped {} views by user ID: {}", views.size() - accepted, userId);
         }
     }
 
     public Page<PostData> getPosts(Pageable pageable, Long userId) {
         logger.debug("Fetching all posts");
         Page<Long> postIds = postRepository.fetchAllPostIds(pageable);
-        List<PostData> posts = postIds.stream()
-                .map(postId -> getPostById(postId, 0, userId))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .toList();
+        List<PostData> posts = getPostsByIds(postIds.getContent(), userId);
         return new PageImpl<>(posts, pageable, postIds.getTotalElements());
     }
 
     public Integer getPostsCount(Long userId) {
         logger.debug("Fetching posts count for user ID: {}", userId);
-        return postRepository.countByUserId(userId);
+        return Math.toIntExact(authorPostCounter.countsFor(List.of(userId)).get(userId));
+    }
+
+    public Map<Long, Integer> getPostsCounts(List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one user ID is required");
+        }
+        if (userIds.size() > MAX_AUTHORS_PER_COUNT_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_AUTHORS_PER_COUNT_REQUEST + " user IDs can be counted per request");
+        }
+        if (userIds.contains(null)) {
+            throw new IllegalArgumentException("User IDs cant be NULL");
+        }
+        logger.debug("Fetching posts counts for {} user IDs", userIds.size());
+        Map<Long, Integer> counts = new HashMap<>();
+        authorPostCounter.countsFor(userIds).forEach((userId, count) -> counts.put(userId, Math.toIntExact(count)));
+        return counts;
     }
 
     private PostData enrichPostData(PostData postData, Long userId, int depth) {
@@ -0,0 +1,70 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * One-off backfill of the {@value KafkaProducer#POST_SNAPSHOTS_TOPIC} topic. Snapshots are only published when a
+ * post is written to the cache, so posts nobody has touched since the topic was introduced have none and a rebuild
+ * can't restore them. This walks every live post by ID, in batches paced to
+ * {@code posts.snapshots.backfill.rate-per-second}, and publishes its current state.
+ * <p>
+ * A consumer that updates a post between the read and the send can be overtaken by the backfilled snapshot; the
+ * next change to the post publishes a fresh one.
+ */
+@Service
+public class PostSnapshotBackfillService extends PacedBatchJob<Long> {
+    private final Logger logger = LoggerFactory.getLogger(PostSnapshotBackfillService.class);
+    private final PostRepository postRepository;
+    private final PostService postService;
+    private final KafkaProducer kafkaProducer;
+    private final int batchSize;
+
+    public PostSnapshotBackfillService(PostRepository postRepository, PostService postService, KafkaProducer kafkaProducer,
+                                       @Value("${posts.snapshots.backfill.batch-size:500}") int batchSize,
+                                       @Value("${posts.snapshots.backfill.rate-per-second:5000}") int ratePerSecond) {
+        super("snapshot backfill", "post-snapshot-backfill", ratePerSecond);
+        this.postRepository = postRepository;
+        this.postService = postService;
+        this.kafkaProducer = kafkaProducer;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    protected Source<Long> openSource() {
+        long total = postRepository.count();
+        logger.info("Publishing snapshots of up to {} posts", total);
+        return new Source<>() {
+            private long afterId;
+
+            @Override
+            public long total() {
+                return total;
+            }
+
+            @Override
+            public Batch<Long> next() {
+                List<Long> ids = postRepository.findLiveIdsAfter(afterId, batchSize);
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                afterId = ids.getLast();
+                return new Batch<>(ids.size(), ids);
+            }
+        };
+    }
+
+    @Override
+    protected int write(List<Long> ids) {
+        List<PostData> snapshots = postService.getPostSnapshots(ids);
+        kafkaProducer.sendPostSnapshots(snapshots);
+        return snapshots.size();
+    }
+}
@@ -0,0 +1,134 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.producer.KafkaProducer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds the post cache from the compacted {@value KafkaProducer#POST_SNAPSHOTS_TOPIC} topic instead of the
+ * database, e.g. after Redis has been flushed. The topic is read up to the end offsets seen when the rebuild starts
+ * and written to Redis in pipelined batches, paced to {@code posts.snapshots.rebuild.rate-per-second} posts.
+ * <p>
+ * Posts already in the cache are left alone: they were either written by the consumer or loaded from the database
+ * after the flush, and are at least as recent as their snapshot.
+ */
+@Service
+public class PostSnapshotRebuildService extends PacedBatchJob<PostData> {
+    private final Logger logger = LoggerFactory.getLogger(PostSnapshotRebuildService.class);
+    private final ConsumerFactory<String, PostData> postSnapshotConsumerFactory;
+    private final CacheService cacheService;
+    private final int batchSize;
+    private final Duration pollTimeout;
+
+    public PostSnapshotRebuildService(ConsumerFactory<String, PostData> postSnapshotConsumerFactory,
+                                      CacheService cacheService,
+                                      @Value("${posts.snapshots.rebuild.batch-size:500}") int batchSize,
+                                      @Value("${posts.snapshots.rebuild.rate-per-second:20000}") int ratePerSecond,
+                                      @Value("${posts.snapshots.rebuild.poll-timeout-ms:2000}") long pollTimeoutMs) {
+        super("cache rebuild", "post-snapshot-rebuild", ratePerSecond);
+        this.postSnapshotConsumerFactory = postSnapshotConsumerFactory;
+        this.cacheService = cacheService;
+        this.batchSize = batchSize;
+        this.pollTimeout = Duration.ofMillis(pollTimeoutMs);
+    }
+
+    @Override
+    protected Source<PostData> openSource() {
+        Consumer<String, PostData> consumer = postSnapshotConsumerFactory.createConsumer();
+        try {
+            return new SnapshotSource(consumer);
+        } catch (RuntimeException e) {
+            consumer.close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected int write(List<PostData> posts) {
+        return cacheService.cachePostDataBatchIfAbsent(posts).size();
+    }
+
+    /**
+     * Reads every partition of the topic from the beginning up to the end offsets seen when it is opened.
+     */
+    private final class SnapshotSource implements Source<PostData> {
+        private final Consumer<String, PostData> consumer;
+        private final Map<TopicPartition, Long> end = new LinkedHashMap<>();
+        private final long total;
+        private Iterator<ConsumerRecord<String, PostData>> polled = Collections.emptyIterator();
+
+        SnapshotSource(Consumer<String, PostData> consumer) {
+            this.consumer = consumer;
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(KafkaProducer.POST_SNAPSHOTS_TOPIC);
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                total = 0;
+                return;
+            }
+            List<TopicPartition> partitions = partitionInfos.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+            end.putAll(consumer.endOffsets(partitions));
+            total = end.entrySet().stream().mapToLong(e -> e.getValue() - beginning.getOrDefault(e.getKey(), 0L)).sum();
+            end.entrySet().removeIf(e -> e.getValue() <= beginning.getOrDefault(e.getKey(), 0L));
+            logger.info("Rebuilding the post cache from {} snapshots in {} partitions", total, partitions.size());
+        }
+
+        @Override
+        public long total() {
+            return total;
+        }
+
+        @Override
+        public Batch<PostData> next() {
+            Map<Long, PostData> batch = new LinkedHashMap<>();
+            long read = 0;
+            while (read < batchSize) {
+                if (!polled.hasNext()) {
+                    // Positions are only checked once everything already polled has been read
+                    end.keySet().removeIf(partition -> consumer.position(partition) >= end.get(partition));
+                    if (end.isEmpty()) {
+                        break;
+                    }
+                    polled = consumer.poll(pollTimeout).iterator();
+                    continue;
+                }
+                ConsumerRecord<String, PostData> record = polled.next();
+                Long endOffset = end.get(new TopicPartition(record.topic(), record.partition()));
+                if (endOffset == null || record.offset() >= endOffset) {
+                    continue;
+                }
+                read++;
+                // Later snapshots of a post replace earlier ones, tombstones and unreadable values are skipped
+                if (record.value() != null) {
+                    batch.put(record.value().getId(), record.value());
+                }
+            }
+            return read == 0 ? null : new Batch<>(read, new ArrayList<>(batch.values()));
+        }
+
+        @Override
+        public void close() {
+            consumer.close();
+        }
+    }
+}
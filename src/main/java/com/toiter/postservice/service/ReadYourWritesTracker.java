@@ -0,0 +1,61 @@
+package com.toiter.postservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Remembers which users wrote something in the last {@code datasource.replicas.read-your-writes-window}, so their
+ * reads can be sent to the primary until the replicas have caught up. Does nothing when no replicas are configured.
+ * <p>
+ * The window is kept in Redis so it holds across instances; it should be longer than
+ * {@code datasource.replicas.max-lag}.
+ */
+@Service
+public class ReadYourWritesTracker {
+    private final Logger logger = LoggerFactory.getLogger(ReadYourWritesTracker.class);
+    private final CacheService cacheService;
+    private final boolean enabled;
+    private final Duration window;
+
+    public ReadYourWritesTracker(CacheService cacheService,
+                                 @Value("${datasource.replicas.urls:}") String replicaUrls,
+                                 @Value("${datasource.replicas.read-your-writes-window:PT5S}") Duration window) {
+        this.cacheService = cacheService;
+        this.enabled = !replicaUrls.isBlank();
+        this.window = window;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void recordWrite(Long userId) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        try {
+            cacheService.markRecentWrite(userId, window);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to record a write by user ID: {}, their next reads may be stale", userId, e);
+        }
+    }
+
+    /**
+     * Whether the user's reads must go to the primary. If Redis can't tell, the answer is yes.
+     */
+    public boolean hasRecentWrite(Long userId) {
+        if (!enabled || userId == null) {
+            return false;
+        }
+        try {
+            return cacheService.hasRecentWrite(userId);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to check recent writes of user ID: {}, reading from the primary", userId, e);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.entity.RepostCascadeProgress;
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.repository.PostRepository;
+import com.toiter.postservice.repository.RepostCascadeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies the deletion of a post to its reposts: pure reposts are soft-deleted, in chunks of
+ * {@code posts.repost-cascade.chunk-size} reposts ordered by ID. Quote-reposts are left alone, since their cache
+ * entries never hold the embedded post; it is resolved on read from the deleted post's own entry.
+ * <p>
+ * Each chunk is one set-based update, one cache read and one pipelined cache write, committed together with the
+ * ID of its last repost. If the consumer crashes the redelivered event resumes after the last committed chunk; a
+ * chunk that is redone is harmless since every step is idempotent.
+ */
+@Service
+public class RepostCascadeService {
+    private final Logger logger = LoggerFactory.getLogger(RepostCascadeService.class);
+    private final PostRepository postRepository;
+    private final RepostCascadeRepository repostCascadeRepository;
+    private final CacheService cacheService;
+    private final TransactionTemplate transactionTemplate;
+    private final KafkaProducer kafkaProducer;
+    private final int chunkSize;
+
+    public RepostCascadeService(PostRepository postRepository, RepostCascadeRepository repostCascadeRepository,
+                                CacheService cacheService, TransactionTemplate transactionTemplate, KafkaProducer kafkaProducer,
+                                @Value("${posts.repost-cascade.chunk-size:1000}") int chunkSize) {
+        this.postRepository = postRepository;
+        this.repostCascadeRepository = repostCascadeRepository;
+        this.cacheService = cacheService;
+        this.transactionTemplate = transactionTemplate;
+        this.kafkaProducer = kafkaProducer;
+        this.chunkSize = chunkSize;
+    }
+
+    public void cascadeDelete(Long postId) {
+        long lastRepostId = repostCascadeRepository.findById(postId).map(RepostCascadeProgress::getLastRepostId).orElse(0L);
+        if (lastRepostId > 0) {
+            logger.info("Resuming repost cascade of post {} after repost {}", postId, lastRepostId);
+        }
+        int total = 0;
+        while (true) {
+            long after = lastRepostId;
+            List<Long> repostIds = transactionTemplate.execute(status -> processChunk(postId, after));
+            if (repostIds == null || repostIds.isEmpty()) {
+                break;
+            }
+            total += repostIds.size();
+            lastRepostId = repostIds.getLast();
+        }
+        if (lastRepostId > 0) {
+            repostCascadeRepository.deleteById(postId);
+        }
+        logger.debug("Repost cascade of post {} done, {} reposts processed", postId, total);
+    }
+
+    private List<Long> processChunk(Long postId, long afterRepostId) {
+        List<Long> repostIds = postRepository.findRepostIdsAfter(postId, afterRepostId, chunkSize);
+        if (repostIds.isEmpty()) {
+            return repostIds;
+        }
+        Set<Long> deleted = new HashSet<>(postRepository.deletePureReposts(repostIds));
+
+        Map<Long, PostData> cachedReposts = cacheService.getCachedPostsByIds(deleted);
+        List<PostData> patched = new ArrayList<>(cachedReposts.size());
+        for (PostData repostData : cachedReposts.values()) {
+            repostData.setContent("");
+            repostData.setMediaUrl(null);
+            repostData.setDeleted(true);
+            patched.add(repostData);
+        }
+        cacheService.cachePostDataBatch(patched);
+        kafkaProducer.sendPostSnapshots(patched);
+
+        repostCascadeRepository.save(new RepostCascadeProgress(postId, repostIds.getLast()));
+        return repostIds;
+    }
+}
@@ -0,0 +1,192 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.PostView;
+import com.toiter.postservice.model.PostViewedEvent;
+import com.toiter.postservice.producer.KafkaProducer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Takes view writes off the request thread. {@link #offer(PostView)} only appends to a bounded in-memory queue; a
+ * scheduled flush drains it in batches of {@code posts.views.buffer.batch-size}, drops views already seen within
+ * {@code posts.views.dedup-window} with one pipelined SET NX, inserts the rest with a single JDBC batch of
+ * {@code INSERT ... ON CONFLICT DO NOTHING} and sends a {@link PostViewedEvent} for every row actually inserted.
+ * <p>
+ * When the queue is full new views are dropped rather than blocking the caller. Exposes
+ * {@code views.buffer.size}, {@code views.buffer.capacity}, {@code views.buffer.dropped},
+ * {@code views.buffer.duplicates} and {@code views.buffer.flush}.
+ */
+@Service
+public class ViewIngestionBuffer {
+    // Views of deleted or unknown posts are skipped by the insert itself, so they can't fail the whole batch.
+    // pst.view is only unique per month; pst.view_viewers makes a user count once per post across all months.
+    private static final String INSERT_VIEW = """
+            WITH first_view AS (
+                INSERT INTO pst.view_viewers (user_id, post_id)
+                SELECT ?, id FROM pst.posts WHERE id = ? AND deleted = false
+                ON CONFLICT DO NOTHING
+                RETURNING user_id, post_id
+            )
+            INSERT INTO pst.view (user_id, post_id)
+            SELECT user_id, post_id FROM first_view
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final Logger logger = LoggerFactory.getLogger(ViewIngestionBuffer.class);
+    private final CacheService cacheService;
+    private final JdbcTemplate jdbcTemplate;
+    private final KafkaProducer kafkaProducer;
+    private final BlockingQueue<PostView> queue;
+    private final int batchSize;
+    private final Duration dedupWindow;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Counter droppedCounter;
+    private final Counter duplicatesCounter;
+    private final Timer flushTimer;
+
+    public ViewIngestionBuffer(CacheService cacheService, JdbcTemplate jdbcTemplate, KafkaProducer kafkaProducer,
+                               MeterRegistry meterRegistry,
+                               @Value("${posts.views.buffer.capacity:50000}") int capacity,
+                               @Value("${posts.views.buffer.batch-size:500}") int batchSize,
+                               @Value("${posts.views.dedup-window:PT24H}") Duration dedupWindow) {
+        this.cacheService = cacheService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.kafkaProducer = kafkaProducer;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.dedupWindow = dedupWindow;
+        this.droppedCounter = meterRegistry.counter("views.buffer.dropped");
+        this.duplicatesCounter = meterRegistry.counter("views.buffer.duplicates");
+        this.flushTimer = meterRegistry.timer("views.buffer.flush");
+        Gauge.builder("views.buffer.size", queue, BlockingQueue::size)
+                .description("Views waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("views.buffer.capacity", () -> capacity)
+                .description("Maximum number of views the buffer holds before dropping new ones")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a view without blocking.
+     *
+     * @return false if the buffer was full and the view was dropped
+     */
+    public boolean offer(PostView view) {
+        if (queue.offer(view)) {
+            return true;
+        }
+        droppedCounter.increment();
+        return false;
+    }
+
+    /**
+     * Queues several views without blocking, stopping at the first one that doesn't fit.
+     *
+     * @return how many views were queued; the rest were dropped
+     */
+    public int offerAll(Collection<PostView> views) {
+        int accepted = 0;
+        for (PostView view : views) {
+            if (!queue.offer(view)) {
+                droppedCounter.increment(views.size() - accepted);
+                break;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    @Scheduled(fixedDelayString = "${posts.views.buffer.flush-interval-ms:100}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        // Waits for a scheduled flush still in progress, then writes whatever is left
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void drain() {
+        List<PostView> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flushTimer.record(() -> write(batch));
+            batch.clear();
+        }
+    }
+
+    private void write(List<PostView> batch) {
+        List<PostView> unique = List.copyOf(new LinkedHashSet<>(batch));
+        List<PostView> claimed;
+        try {
+            claimed = cacheService.claimViews(unique, dedupWindow);
+        } catch (RuntimeException e) {
+            // Without the window the unique constraint still drops repeats, only at a higher cost
+            logger.warn("Failed to check the view dedup window, writing {} views unfiltered", unique.size(), e);
+            claimed = unique;
+        }
+        duplicatesCounter.increment(batch.size() - claimed.size());
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        int[] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(INSERT_VIEW, claimed.stream()
+                    .map(view -> new Object[]{view.userId(), view.postId()})
+                    .toList());
+        } catch (RuntimeException e) {
+            logger.error("Failed to write {} views, dropping them", claimed.size(), e);
+            releaseQuietly(claimed);
+            droppedCounter.increment(claimed.size());
+            return;
+        }
+
+        int inserted = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                kafkaProducer.sendPostViewedEvent(new PostViewedEvent(claimed.get(i).postId(), claimed.get(i).userId()));
+                inserted++;
+            }
+        }
+        logger.debug("Wrote {} of {} buffered views", inserted, batch.size());
+    }
+
+    private void releaseQuietly(List<PostView> views) {
+        try {
+            cacheService.releaseViews(views);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to release the dedup window of {} views", views.size(), e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.toiter.postservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code pst.view} in shape: partitions for the next
+ * {@code posts.views.partitions.months-ahead} months are created in advance, and partitions older than
+ * {@code posts.views.partitions.retention-months} have their per-post counts added to {@code pst.view_counts} and
+ * are detached in the same transaction, so every view is counted exactly once. Detaching doesn't touch
+ * {@code pst.view_viewers}, so a user whose view was rolled up still isn't counted again.
+ * <p>
+ * Detached partitions are kept as plain tables unless {@code posts.views.partitions.drop-detached} is set. Instances
+ * serialize on a transaction-scoped advisory lock, so only one of them does the work.
+ */
+@Service
+public class ViewPartitionMaintenance {
+    private static final long ADVISORY_LOCK_KEY = 0x7669657770L;
+    private static final Pattern PARTITION_NAME = Pattern.compile("view_p(\\d{4})_(\\d{2})");
+
+    private final Logger logger = LoggerFactory.getLogger(ViewPartitionMaintenance.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean dropDetached;
+    private final Clock clock;
+
+    @Autowired
+    public ViewPartitionMaintenance(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                    @Value("${posts.views.partitions.months-ahead:3}") int monthsAhead,
+                                    @Value("${posts.views.partitions.retention-months:6}") int retentionMonths,
+                                    @Value("${posts.views.partitions.drop-detached:false}") boolean dropDetached) {
+        this(jdbcTemplate, transactionTemplate, monthsAhead, retentionMonths, dropDetached, Clock.systemDefaultZone());
+    }
+
+    ViewPartitionMaintenance(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             int monthsAhead, int retentionMonths, boolean dropDetached, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.dropDetached = dropDetached;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${posts.views.partitions.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        YearMonth current = YearMonth.now(clock);
+        try {
+            withLock(() -> {
+                for (int i = 0; i <= monthsAhead; i++) {
+                    createPartition(current.plusMonths(i));
+                }
+            });
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            for (String partition : attachedPartitions()) {
+                YearMonth month = monthOf(partition);
+                if (month != null && month.isBefore(oldestKept)) {
+                    withLock(() -> rollUpAndDetach(partition));
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("View partition maintenance failed, will retry", e);
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("view_p%04d_%02d", month.getYear(), month.getMonthValue());
+    }
+
+    static YearMonth monthOf(String partitionName) {
+        Matcher matcher = PARTITION_NAME.matcher(partitionName);
+        return matcher.matches() ? YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))) : null;
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbcTemplate.execute(String.format("CREATE TABLE IF NOT EXISTS pst.%s PARTITION OF pst.view FOR VALUES FROM ('%s') TO ('%s')",
+                partitionName(month), month.atDay(1), month.plusMonths(1).atDay(1)));
+    }
+
+    private List<String> attachedPartitions() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'pst.view'::regclass ORDER BY c.relname
+                """, String.class);
+    }
+
+    private void rollUpAndDetach(String partition) {
+        int posts = jdbcTemplate.update(String.format("""
+                INSERT INTO pst.view_counts (post_id, views)
+                SELECT post_id, COUNT(*) FROM pst.%s GROUP BY post_id
+                ON CONFLICT (post_id) DO UPDATE SET views = pst.view_counts.views + EXCLUDED.views
+                """, partition));
+        jdbcTemplate.execute(String.format("ALTER TABLE pst.view DETACH PARTITION pst.%s", partition));
+        if (dropDetached) {
+            jdbcTemplate.execute(String.format("DROP TABLE pst.%s", partition));
+        }
+        logger.info("Rolled up views of {} posts from partition {} and detached it", posts, partition);
+    }
+
+    private void withLock(Runnable action) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY))) {
+                action.run();
+            } else {
+                logger.debug("View partition maintenance is running on another instance");
+            }
+        });
+    }
+}
@@ -0,0 +1,3 @@
+-- O relay só publica o evento pendente mais antigo de cada post (lockPendingBatch); este índice responde a busca
+-- por um evento pendente anterior do mesmo post.
+CREATE INDEX idx_outbox_pending_aggregate ON pst.outbox (aggregate_id, id) WHERE published_at IS NULL;
@@ -0,0 +1,4 @@
+-- Visualizações contadas no modo rows antes da troca para hll. Nesse modo nada mais é gravado em pst.view, então o
+-- total de um post é essa base mais a estimativa do HyperLogLog, e a troca de modo não zera as contagens.
+-- Preenchida na primeira persistência de cada post (PostViewersRepository.upsert) e mantida nas seguintes.
+ALTER TABLE pst.post_viewers ADD COLUMN baseline BIGINT NOT NULL DEFAULT 0;
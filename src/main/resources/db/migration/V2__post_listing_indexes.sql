@@ -0,0 +1,26 @@
+-- Índices parciais e de cobertura para as consultas do PostRepository.
+-- Cada listagem é atendida por um Index Only Scan já na ordem pedida, sem Sort.
+
+-- Duplicados da chave primária ou cobertos pelos índices abaixo; 'deleted' tem seletividade baixa demais
+DROP INDEX IF EXISTS pst.idx_posts_id;
+DROP INDEX IF EXISTS pst.idx_posts_user_id;
+DROP INDEX IF EXISTS pst.idx_posts_parent_post_id;
+DROP INDEX IF EXISTS pst.idx_posts_parent_post_id_created_at;
+DROP INDEX IF EXISTS pst.idx_posts_deleted;
+
+-- fetchAllPostIds: linha do tempo global, só posts de primeiro nível não excluídos
+CREATE INDEX idx_posts_timeline ON pst.posts (created_at DESC) INCLUDE (id)
+    WHERE deleted = false AND parent_post_id IS NULL;
+
+-- fetchIdsByUserId e countByUserId: posts de primeiro nível do usuário; repost_parent_post_id incluído para a
+-- contagem filtrar os reposts sem visitar a tabela
+CREATE INDEX idx_posts_user_timeline ON pst.posts (user_id, created_at DESC) INCLUDE (id, repost_parent_post_id)
+    WHERE deleted = false AND parent_post_id IS NULL;
+
+-- findChildIdsByParentPostId e a contagem de respostas de fetchPostData
+CREATE INDEX idx_posts_replies ON pst.posts (parent_post_id, created_at DESC) INCLUDE (id, deleted)
+    WHERE parent_post_id IS NOT NULL;
+
+-- findRepostIdsAfter e a contagem de repostagens de fetchPostData
+CREATE INDEX idx_posts_reposts ON pst.posts (repost_parent_post_id, id) INCLUDE (deleted)
+    WHERE repost_parent_post_id IS NOT NULL;
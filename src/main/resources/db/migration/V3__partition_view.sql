@@ -0,0 +1,57 @@
+-- Particionamento mensal de pst.view.
+-- Um usuário conta uma vez por post para sempre: pst.view_viewers (não particionada) guarda cada par usuário/post
+-- já contado e só a primeira visualização do par gera uma linha em pst.view. Em pst.view a unicidade vale apenas
+-- dentro de cada mês (view_month faz parte da chave de particionamento, e o Postgres exige a chave de
+-- particionamento nas restrições únicas).
+-- Partições antigas têm suas contagens somadas em pst.view_counts antes de serem desanexadas; o total de
+-- visualizações de um post é view_counts.views mais as linhas ainda anexadas a pst.view.
+
+-- Totais por post das partições já desanexadas
+CREATE TABLE pst.view_counts (
+                                 post_id BIGINT PRIMARY KEY REFERENCES pst.posts (id) ON DELETE CASCADE, -- ID da postagem
+                                 views BIGINT NOT NULL                                                    -- Visualizações acumuladas
+);
+
+-- A tabela atual vira histórico: suas contagens são consolidadas e ela pode ser removida após conferência (V8)
+ALTER TABLE pst.view RENAME TO view_legacy;
+ALTER INDEX pst.idx_view_user_post RENAME TO idx_view_legacy_user_post;
+
+INSERT INTO pst.view_counts (post_id, views)
+SELECT post_id, COUNT(*) FROM pst.view_legacy GROUP BY post_id;
+
+CREATE TABLE pst.view (
+                          id BIGINT NOT NULL DEFAULT nextval('pst.view_id_seq'),        -- Identificador único
+                          user_id BIGINT NOT NULL REFERENCES usr.users (id),             -- ID do usuário que visualizou
+                          post_id BIGINT NOT NULL REFERENCES pst.posts (id) ON DELETE CASCADE, -- ID da postagem visualizada
+                          created_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,     -- Data e hora da visualização
+                          view_month DATE NOT NULL DEFAULT date_trunc('month', CURRENT_DATE)::date, -- Mês da partição
+                          PRIMARY KEY (id, view_month),
+                          UNIQUE (user_id, post_id, view_month)
+) PARTITION BY RANGE (view_month);
+
+ALTER SEQUENCE pst.view_id_seq OWNED BY pst.view.id;
+
+-- Pares usuário/post já contados, incluindo os das visualizações consolidadas acima
+CREATE TABLE pst.view_viewers (
+                                  user_id BIGINT NOT NULL,  -- ID do usuário que visualizou
+                                  post_id BIGINT NOT NULL REFERENCES pst.posts (id) ON DELETE CASCADE, -- ID da postagem
+                                  PRIMARY KEY (user_id, post_id)
+);
+
+INSERT INTO pst.view_viewers (user_id, post_id)
+SELECT DISTINCT user_id, post_id FROM pst.view_legacy;
+
+-- Contagem por post em fetchPostData
+CREATE INDEX idx_view_post_id ON pst.view (post_id);
+
+-- Partições do mês atual e dos próximos; as seguintes são criadas pelo serviço (ViewPartitionMaintenance)
+DO $$
+    DECLARE
+        start_month DATE := date_trunc('month', CURRENT_DATE)::date;
+    BEGIN
+        FOR i IN 0..3 LOOP
+                EXECUTE format('CREATE TABLE IF NOT EXISTS pst.%I PARTITION OF pst.view FOR VALUES FROM (%L) TO (%L)',
+                               'view_p' || to_char(start_month, 'YYYY_MM'), start_month, (start_month + INTERVAL '1 month')::date);
+                start_month := (start_month + INTERVAL '1 month')::date;
+            END LOOP;
+    END $$;
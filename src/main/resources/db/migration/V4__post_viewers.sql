@@ -0,0 +1,8 @@
+-- Estimativa de visualizadores únicos por post no modo HyperLogLog (posts.views.mode=hll).
+-- Os registradores do HyperLogLog são guardados para restaurar a contagem se a chave expirar ou o Redis for limpo.
+CREATE TABLE pst.post_viewers (
+                                  post_id BIGINT PRIMARY KEY REFERENCES pst.posts (id) ON DELETE CASCADE, -- ID da postagem
+                                  viewers BIGINT NOT NULL,      -- Estimativa de visualizadores únicos
+                                  registers BYTEA NOT NULL,     -- HyperLogLog serializado pelo Redis
+                                  updated_at TIMESTAMP NOT NULL -- Data e hora da última persistência
+);
@@ -0,0 +1,15 @@
+-- IDs de posts, curtidas e visualizações passam a vir de sequências com incremento 50, alocadas em blocos pelo
+-- otimizador "pooled" do Hibernate (allocationSize = 50). Com IDENTITY o Hibernate desativa o batch de inserts
+-- e busca cada ID numa ida e volta ao banco.
+-- As colunas continuam com DEFAULT nextval(...): um INSERT direto em SQL recebe um valor da mesma sequência, que
+-- o Hibernate nunca usa, porque cada bloco do Hibernate termina no valor que ele próprio obteve.
+-- O setval garante que o próximo bloco começa depois do maior ID existente, mesmo que linhas tenham sido
+-- inseridas com IDs explícitos.
+ALTER SEQUENCE pst.posts_id_seq INCREMENT BY 50;
+SELECT setval('pst.posts_id_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM pst.posts), (SELECT last_value FROM pst.posts_id_seq)));
+
+ALTER SEQUENCE pst.like_id_seq INCREMENT BY 50;
+SELECT setval('pst.like_id_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM pst.like), (SELECT last_value FROM pst.like_id_seq)));
+
+ALTER SEQUENCE pst.view_id_seq INCREMENT BY 50;
+SELECT setval('pst.view_id_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM pst.view), (SELECT last_value FROM pst.view_id_seq)));
@@ -0,0 +1,3 @@
+-- fetchPostData e fetchPostDataByIds contam as curtidas por post; idx_like_user_post começa por user_id e não
+-- serve para essa busca.
+CREATE INDEX idx_like_post_id ON pst.like (post_id);
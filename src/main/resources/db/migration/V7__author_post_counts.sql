@@ -0,0 +1,13 @@
+-- Contagem de posts por autor, mantida na mesma transação que cria ou exclui o post, para que
+-- /internal/posts/count não precise contar pst.posts a cada chamada.
+-- Conta o mesmo que countByUserId: posts de primeiro nível, não excluídos, que não são repostagens.
+CREATE TABLE pst.author_post_counts (
+                                        user_id BIGINT PRIMARY KEY,   -- ID do autor
+                                        posts BIGINT NOT NULL DEFAULT 0 -- Quantidade de posts do autor
+);
+
+INSERT INTO pst.author_post_counts (user_id, posts)
+SELECT user_id, COUNT(*)
+FROM pst.posts
+WHERE deleted = false AND parent_post_id IS NULL AND repost_parent_post_id IS NULL
+GROUP BY user_id;
@@ -0,0 +1,3 @@
+-- Remove a tabela histórica da V3: suas contagens estão em pst.view_counts e seus pares usuário/post em
+-- pst.view_viewers
+DROP TABLE pst.view_legacy;
@@ -0,0 +1,19 @@
+-- Tabela 'outbox': eventos gravados na mesma transação do post e publicados no Kafka pelo relay
+CREATE TABLE pst.outbox (
+                            id BIGSERIAL PRIMARY KEY,       -- Identificador único, define a ordem de publicação
+                            topic VARCHAR(255) NOT NULL,    -- Tópico Kafka de destino
+                            aggregate_id BIGINT NOT NULL,   -- ID do post ao qual o evento se refere
+                            event_type VARCHAR(255) NOT NULL, -- Classe do evento serializado
+                            payload TEXT NOT NULL,          -- Evento serializado em JSON
+                            created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, -- Data e hora da gravação
+                            published_at TIMESTAMP          -- Data e hora da publicação no Kafka
+);
+-- Index parcial para o relay encontrar rapidamente os eventos pendentes
+CREATE INDEX idx_outbox_pending ON pst.outbox (id) WHERE published_at IS NULL;
+
+-- Tabela 'repost_cascade': progresso da exclusão em cascata dos reposts de um post, para retomar após uma falha
+CREATE TABLE pst.repost_cascade (
+                                    post_id BIGINT PRIMARY KEY,     -- ID do post excluído
+                                    last_repost_id BIGINT NOT NULL, -- Maior ID de repost já processado
+                                    updated_at TIMESTAMP NOT NULL   -- Data e hora do último lote processado
+);
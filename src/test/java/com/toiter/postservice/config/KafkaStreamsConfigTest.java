@@ -0,0 +1,124 @@
+package com.toiter.postservice.config;
+
+import com.toiter.postservice.entity.Post;
+import com.toiter.postservice.model.*;
+import com.toiter.postservice.serialization.EventEncoding;
+import com.toiter.postservice.serialization.EventSerializer;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaStreamsConfigTest {
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, Object> likes;
+    private TestInputTopic<String, Object> views;
+    private TestInputTopic<String, Object> created;
+    private TestInputTopic<String, Object> deleted;
+    private KeyValueStore<String, PostCounters> store;
+
+    @BeforeEach
+    void setUp() {
+        StreamsBuilder builder = new StreamsBuilder();
+        new KafkaStreamsConfig().postCountersTable(builder);
+
+        Properties config = new Properties();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, "post-counters-test");
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        config.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        driver = new TopologyTestDriver(builder.build(), config);
+
+        likes = input("like-events-topic");
+        views = input("post-viewed-topic");
+        created = input("post-created-topic");
+        deleted = input("post-deleted-topic");
+        store = driver.getKeyValueStore(KafkaStreamsConfig.POST_COUNTERS_STORE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void likesAndUnlikesAreAggregatedPerPost() {
+        likes.pipeInput("1", new PostLikedEvent(1L, 10L));
+        likes.pipeInput("1", new PostLikedEvent(1L, 11L));
+        likes.pipeInput("1", new PostUnlikedEvent(1L, 10L));
+        likes.pipeInput("2", new PostLikedEvent(2L, 10L));
+
+        assertEquals(1, store.get("1").getLikes());
+        assertEquals(1, store.get("2").getLikes());
+    }
+
+    @Test
+    void viewsAreCountedPerEvent() {
+        views.pipeInput("1", new PostViewedEvent(1L, 10L));
+        views.pipeInput("1", new PostViewedEvent(1L, 11L));
+
+        assertEquals(2, store.get("1").getViews());
+    }
+
+    @Test
+    void creationMarksThePostAndCountsTowardsItsParents() {
+        created.pipeInput("1", new PostCreatedEvent(post(1L, null, null)));
+        created.pipeInput("2", new PostCreatedEvent(post(2L, 1L, null)));
+        created.pipeInput("3", new PostCreatedEvent(post(3L, null, 1L)));
+
+        PostCounters parent = store.get("1");
+        assertTrue(parent.isCreated());
+        assertFalse(parent.isDeleted());
+        assertEquals(1, parent.getReplies());
+        assertEquals(1, parent.getReposts());
+        assertTrue(store.get("2").isCreated());
+    }
+
+    @Test
+    void deletionMarksThePostAndUndoesItsParentCounts() {
+        created.pipeInput("1", new PostCreatedEvent(post(1L, null, null)));
+        created.pipeInput("2", new PostCreatedEvent(post(2L, 1L, null)));
+        created.pipeInput("3", new PostCreatedEvent(post(3L, null, 1L)));
+        deleted.pipeInput("2", new PostDeletedEvent(post(2L, 1L, null)));
+        deleted.pipeInput("3", new PostDeletedEvent(post(3L, null, 1L)));
+
+        assertEquals(0, store.get("1").getReplies());
+        assertEquals(0, store.get("1").getReposts());
+        assertTrue(store.get("2").isDeleted());
+        assertTrue(store.get("3").isDeleted());
+    }
+
+    @Test
+    void allSourcesFeedTheSameCounters() {
+        created.pipeInput("1", new PostCreatedEvent(post(1L, null, null)));
+        likes.pipeInput("1", new PostLikedEvent(1L, 10L));
+        views.pipeInput("1", new PostViewedEvent(1L, 10L));
+        created.pipeInput("2", new PostCreatedEvent(post(2L, 1L, null)));
+
+        PostCounters counters = store.get("1");
+        assertTrue(counters.isCreated());
+        assertEquals(1, counters.getLikes());
+        assertEquals(1, counters.getViews());
+        assertEquals(1, counters.getReplies());
+    }
+
+    private TestInputTopic<String, Object> input(String topic) {
+        return driver.createInputTopic(topic, new StringSerializer(), new EventSerializer<>(EventEncoding.BINARY));
+    }
+
+    private static Post post(Long id, Long parentPostId, Long repostParentId) {
+        Post post = new Post(parentPostId, repostParentId, 5L, "post " + id, null, null, null);
+        post.setId(id);
+        return post;
+    }
+}
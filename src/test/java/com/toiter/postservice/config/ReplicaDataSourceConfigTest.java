@@ -0,0 +1,62 @@
+package com.toiter.postservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaDataSourceConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            // Converts datasource.replicas.max-lag as the application would
+            .withInitializer(context -> context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withUserConfiguration(TestConfig.class, ReplicaDataSourceConfig.class)
+            .withPropertyValues(
+                    "spring.datasource.url=jdbc:postgresql://primary:5432/toiter",
+                    "spring.datasource.username=pst",
+                    "spring.datasource.hikari.maximum-pool-size=12",
+                    "spring.datasource.hikari.connection-timeout=2500",
+                    "datasource.replicas.urls=jdbc:postgresql://replica:5432/toiter",
+                    "datasource.replicas.hikari.maximum-pool-size=4");
+
+    @Test
+    void poolsAreConfiguredFromTheHikariProperties() {
+        contextRunner.run(context -> {
+            HikariDataSource replica = (HikariDataSource) context.getBean(ReplicaLagMonitor.class).getReplicas().get("replica-1");
+            assertEquals("jdbc:postgresql://replica:5432/toiter", replica.getJdbcUrl());
+            assertEquals(4, replica.getMaximumPoolSize());
+            assertEquals(2500, replica.getConnectionTimeout());
+            assertTrue(replica.isReadOnly());
+
+            LazyConnectionDataSourceProxy proxy = (LazyConnectionDataSourceProxy) context.getBean(DataSource.class);
+            HikariDataSource primary = (HikariDataSource) ((ReplicaRoutingDataSource) proxy.getTargetDataSource()).getResolvedDefaultDataSource();
+            assertEquals("jdbc:postgresql://primary:5432/toiter", primary.getJdbcUrl());
+            assertEquals(12, primary.getMaximumPoolSize());
+            assertEquals(2500, primary.getConnectionTimeout());
+            assertFalse(primary.isReadOnly());
+        });
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(DataSourceProperties.class)
+    static class TestConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
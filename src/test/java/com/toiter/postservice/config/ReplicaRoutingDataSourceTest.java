@@ -0,0 +1,78 @@
+package com.toiter.postservice.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private ReplicaLagMonitor lagMonitor;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dataSource = new ReplicaRoutingDataSource(List.of("replica-1", "replica-2"), lagMonitor, meterRegistry);
+        lenient().when(lagMonitor.isUsable("replica-1")).thenReturn(true);
+        lenient().when(lagMonitor.isUsable("replica-2")).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingDataSource.clearPrimaryRequired();
+    }
+
+    @Test
+    void writesGoToThePrimary() {
+        assertEquals("primary", dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void readOnlyTransactionsAlternateBetweenReplicas() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+        assertEquals("replica-2", dataSource.determineCurrentLookupKey());
+        assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+        assertEquals(2, meterRegistry.counter("datasource.routed", "target", "replica-1").count());
+    }
+
+    @Test
+    void laggingReplicasAreSkipped() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(lagMonitor.isUsable("replica-1")).thenReturn(false);
+
+        assertEquals("replica-2", dataSource.determineCurrentLookupKey());
+        assertEquals("replica-2", dataSource.determineCurrentLookupKey());
+
+        when(lagMonitor.isUsable("replica-2")).thenReturn(false);
+        assertEquals("primary", dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void readYourWritesReadsGoToThePrimary() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaRoutingDataSource.requirePrimary();
+
+        assertEquals("primary", dataSource.determineCurrentLookupKey());
+
+        ReplicaRoutingDataSource.clearPrimaryRequired();
+        assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+    }
+}
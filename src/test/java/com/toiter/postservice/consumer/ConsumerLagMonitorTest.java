@@ -0,0 +1,101 @@
+package com.toiter.postservice.consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsResult;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsumerLagMonitorTest {
+
+    private static final String GROUP = "post-event-consumers";
+    private static final TopicPartition FIRST = new TopicPartition("post-created-topic", 0);
+    private static final TopicPartition SECOND = new TopicPartition("post-created-topic", 1);
+
+    @Mock
+    private AdminClient adminClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConsumerLagMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new ConsumerLagMonitor(adminClient, meterRegistry, List.of(GROUP), 100);
+    }
+
+    @Test
+    void lagIsTheDistanceFromTheCommittedOffsetToTheEnd() {
+        committed(Map.of(FIRST, 40L, SECOND, 90L));
+        ends(Map.of(FIRST, 100L, SECOND, 90L));
+
+        monitor.refresh();
+
+        assertEquals(60, partitionLag(FIRST));
+        assertEquals(0, partitionLag(SECOND));
+        assertEquals(60, totalLag());
+    }
+
+    @Test
+    void failedRefreshKeepsTheLastValues() {
+        committed(Map.of(FIRST, 40L));
+        ends(Map.of(FIRST, 100L));
+        monitor.refresh();
+
+        ListConsumerGroupOffsetsResult failed = mock(ListConsumerGroupOffsetsResult.class);
+        KafkaFutureImpl<Map<TopicPartition, OffsetAndMetadata>> future = new KafkaFutureImpl<>();
+        future.completeExceptionally(new TimeoutException("broker unavailable"));
+        when(failed.partitionsToOffsetAndMetadata()).thenReturn(future);
+        when(adminClient.listConsumerGroupOffsets(GROUP)).thenReturn(failed);
+
+        monitor.refresh();
+
+        assertEquals(60, partitionLag(FIRST));
+        assertEquals(60, totalLag());
+    }
+
+    private void committed(Map<TopicPartition, Long> offsets) {
+        ListConsumerGroupOffsetsResult result = mock(ListConsumerGroupOffsetsResult.class);
+        Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+        offsets.forEach((partition, offset) -> committed.put(partition, new OffsetAndMetadata(offset)));
+        when(result.partitionsToOffsetAndMetadata()).thenReturn(KafkaFuture.completedFuture(committed));
+        when(adminClient.listConsumerGroupOffsets(GROUP)).thenReturn(result);
+    }
+
+    private void ends(Map<TopicPartition, Long> offsets) {
+        ListOffsetsResult result = mock(ListOffsetsResult.class);
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = new HashMap<>();
+        offsets.forEach((partition, offset) -> ends.put(partition, new ListOffsetsResult.ListOffsetsResultInfo(offset, -1, Optional.empty())));
+        when(result.all()).thenReturn(KafkaFuture.completedFuture(ends));
+        when(adminClient.listOffsets(anyMap())).thenReturn(result);
+    }
+
+    private double partitionLag(TopicPartition partition) {
+        return meterRegistry.get("kafka.consumer.group.lag")
+                .tags("group", GROUP, "topic", partition.topic(), "partition", String.valueOf(partition.partition()))
+                .gauge().value();
+    }
+
+    private double totalLag() {
+        return meterRegistry.get("kafka.consumer.group.lag.total").tag("group", GROUP).gauge().value();
+    }
+}
@@ -0,0 +1,60 @@
+package com.toiter.postservice.consumer;
+
+import com.toiter.postservice.model.PostViewedEvent;
+import com.toiter.postservice.service.CacheService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventDeduplicatorTest {
+
+    @Mock
+    private CacheService cacheService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private EventDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        deduplicator = new EventDeduplicator(cacheService, meterRegistry, Duration.ofHours(24));
+    }
+
+    @Test
+    void dropsAppliedEventsAndRepeatsWithinTheBatch() {
+        PostViewedEvent applied = new PostViewedEvent(1L, 10L);
+        PostViewedEvent fresh = new PostViewedEvent(2L, 10L);
+        PostViewedEvent repeated = new PostViewedEvent(fresh.getEventId(), 2L, 10L);
+        PostViewedEvent legacy = new PostViewedEvent(null, 3L, 10L);
+        when(cacheService.getAppliedEventIds(any())).thenReturn(Set.of(applied.getEventId()));
+
+        List<PostViewedEvent> result = deduplicator.unapplied("post-viewed-topic",
+                Arrays.asList(applied, fresh, repeated, null, legacy), PostViewedEvent::getEventId);
+
+        assertEquals(Arrays.asList(fresh, null, legacy), result);
+        assertEquals(2.0, meterRegistry.counter("kafka.consumer.duplicates", "topic", "post-viewed-topic").count());
+    }
+
+    @Test
+    void marksOnlyEventsWithAnId() {
+        UUID id = UUID.randomUUID();
+
+        deduplicator.markApplied(Arrays.asList(id, null));
+
+        verify(cacheService).markEventsApplied(List.of(id), Duration.ofHours(24));
+    }
+}
@@ -0,0 +1,56 @@
+package com.toiter.postservice.consumer;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventLatencyRecorderTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private EventLatencyRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        recorder = new EventLatencyRecorder(meterRegistry, Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+    }
+
+    @Test
+    void recordsTimeSinceProductionPerTopic() {
+        recorder.record("post-created-topic", NOW - 250);
+        recorder.recordAll("like-events-topic", Arrays.asList(NOW - 100, NOW - 300, null));
+
+        Timer posts = timer("post-created-topic");
+        assertEquals(1, posts.count());
+        assertEquals(250, posts.totalTime(TimeUnit.MILLISECONDS));
+
+        Timer likes = timer("like-events-topic");
+        assertEquals(2, likes.count());
+        assertEquals(300, likes.max(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void ignoresMissingTimestampsAndClampsClockSkew() {
+        recorder.record("post-viewed-topic", -1);
+        recorder.record("post-viewed-topic", NOW + 50);
+
+        Timer views = timer("post-viewed-topic");
+        assertEquals(1, views.count());
+        assertEquals(0, views.totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    private Timer timer(String topic) {
+        return meterRegistry.get("kafka.event.visible.latency").tag("topic", topic).timer();
+    }
+}
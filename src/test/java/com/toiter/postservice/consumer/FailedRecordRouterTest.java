@@ -0,0 +1,51 @@
+package com.toiter.postservice.consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailedRecordRouterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private FailedRecordRouter router;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        router = new FailedRecordRouter(meterRegistry);
+    }
+
+    @Test
+    void sourceTopicFailureGoesToRetryTopic() {
+        TopicPartition destination = router.apply(record("post-created-topic", "event"), new IllegalStateException("redis down"));
+
+        assertEquals("post-created-topic-retry", destination.topic());
+        assertEquals(-1, destination.partition());
+        assertEquals(1.0, meterRegistry.counter("kafka.consumer.failed.records", "topic", "post-created-topic", "destination", "retry").count());
+    }
+
+    @Test
+    void retryTopicFailureGoesToDeadLetterTopic() {
+        TopicPartition destination = router.apply(record("like-events-topic-retry", "event"), new IllegalStateException("redis down"));
+
+        assertEquals("like-events-topic-dlt", destination.topic());
+        assertEquals(1.0, meterRegistry.counter("kafka.consumer.failed.records", "topic", "like-events-topic", "destination", "dlt").count());
+    }
+
+    @Test
+    void unreadableRecordSkipsRetries() {
+        Exception exception = new RuntimeException(new DeserializationException("bad json", new byte[0], false, null));
+
+        assertEquals("post-deleted-topic-dlt", router.apply(record("post-deleted-topic", "event"), exception).topic());
+        assertEquals("post-deleted-topic-dlt", router.apply(record("post-deleted-topic", null), new RuntimeException()).topic());
+    }
+
+    private ConsumerRecord<String, Object> record(String topic, Object value) {
+        return new ConsumerRecord<>(topic, 0, 0L, "1", value);
+    }
+}
@@ -0,0 +1,185 @@
+package com.toiter.postservice.consumer;
+
+import com.toiter.postservice.entity.Post;
+import com.toiter.postservice.model.LikeEvent;
+import com.toiter.postservice.model.LikeStatus;
+import com.toiter.postservice.model.PostCreatedEvent;
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.model.PostEvent;
+import com.toiter.postservice.model.PostLikedEvent;
+import com.toiter.postservice.model.PostUnlikedEvent;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.service.CacheService;
+import com.toiter.postservice.service.RepostCascadeService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaConsumerTest {
+
+    @Mock
+    private CacheService cacheService;
+
+    @Mock
+    private RepostCascadeService repostCascadeService;
+
+    @Mock
+    private ViewCountAggregator viewCountAggregator;
+
+    @Mock
+    private KeyOrderedDispatcher keyOrderedDispatcher;
+
+    @Mock
+    private EventDeduplicator eventDeduplicator;
+
+    @Mock
+    private EventLatencyRecorder eventLatencyRecorder;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    private KafkaConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new KafkaConsumer(cacheService, repostCascadeService, viewCountAggregator, keyOrderedDispatcher, eventDeduplicator, eventLatencyRecorder, kafkaProducer);
+        lenient().when(eventDeduplicator.unapplied(any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void likeEventsAreCoalescedPerPost() {
+        PostData hot = post(1L, 10);
+        PostData other = post(2L, 3);
+        when(cacheService.getCachedPostsByIds(any())).thenReturn(Map.of(1L, hot, 2L, other));
+
+        List<LikeEvent> events = List.of(
+                new PostLikedEvent(1L, 100L),
+                new PostLikedEvent(1L, 101L),
+                new PostLikedEvent(1L, 102L),
+                new PostUnlikedEvent(2L, 100L)
+        );
+        ReflectionTestUtils.invokeMethod(consumer, "processLikeEvents", events, timestamps(events.size()));
+
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(cacheService, times(1)).getCachedPostsByIds(ids.capture());
+        assertEquals(Set.of(1L, 2L), Set.copyOf(ids.getValue()));
+        verify(cacheService, times(1)).cachePostDataBatch(any());
+        assertEquals(13, hot.getLikesCount());
+        assertEquals(2, other.getLikesCount());
+
+        ArgumentCaptor<Collection<LikeStatus>> statuses = ArgumentCaptor.forClass(Collection.class);
+        verify(cacheService).setLikeStatuses(statuses.capture());
+        assertEquals(4, statuses.getValue().size());
+        verify(cacheService, never()).cachePostData(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void likeThenUnlikeInSamePollCancelsOut() {
+        List<LikeEvent> events = List.of(
+                new PostLikedEvent(1L, 100L),
+                new PostUnlikedEvent(1L, 100L)
+        );
+        ReflectionTestUtils.invokeMethod(consumer, "processLikeEvents", events, timestamps(events.size()));
+
+        verify(cacheService, never()).getCachedPostsByIds(any());
+        ArgumentCaptor<Collection<LikeStatus>> statuses = ArgumentCaptor.forClass(Collection.class);
+        verify(cacheService).setLikeStatuses(statuses.capture());
+        assertEquals(List.of(new LikeStatus(100L, 1L, false)), List.copyOf(statuses.getValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unexpectedLikeEventFailsAfterApplyingThePrefix() {
+        PostData post = post(1L, 5);
+        when(cacheService.getCachedPostsByIds(any())).thenReturn(Map.of(1L, post));
+
+        List<LikeEvent> events = new ArrayList<>();
+        events.add(new PostLikedEvent(1L, 100L));
+        events.add(null);
+        events.add(new PostLikedEvent(1L, 101L));
+
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class,
+                () -> ReflectionTestUtils.invokeMethod(consumer, "processLikeEvents", events, timestamps(events.size())));
+
+        assertEquals(1, e.getIndex());
+        assertEquals(6, post.getLikesCount());
+        ArgumentCaptor<Collection<LikeStatus>> statuses = ArgumentCaptor.forClass(Collection.class);
+        verify(cacheService).setLikeStatuses(statuses.capture());
+        assertEquals(List.of(new LikeStatus(100L, 1L, true)), List.copyOf(statuses.getValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void alreadyAppliedLikeEventsAreSkippedAndNewOnesMarked() {
+        PostLikedEvent duplicate = new PostLikedEvent(1L, 100L);
+        PostLikedEvent fresh = new PostLikedEvent(1L, 101L);
+        PostData post = post(1L, 5);
+        when(eventDeduplicator.unapplied(any(), any(), any())).thenReturn(List.of(fresh));
+        when(cacheService.getCachedPostsByIds(any())).thenReturn(Map.of(1L, post));
+
+        ReflectionTestUtils.invokeMethod(consumer, "processLikeEvents", List.<LikeEvent>of(duplicate, fresh), timestamps(2));
+
+        assertEquals(6, post.getLikesCount());
+        ArgumentCaptor<Collection<UUID>> marked = ArgumentCaptor.forClass(Collection.class);
+        verify(eventDeduplicator).markApplied(marked.capture());
+        assertEquals(List.of(fresh.getEventId()), List.copyOf(marked.getValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void postEventWithoutIdIsAppliedOnce() {
+        doAnswer(invocation -> {
+            List<ConsumerRecord<String, PostEvent>> records = invocation.getArgument(0);
+            records.forEach(((Consumer<ConsumerRecord<String, PostEvent>>) invocation.getArgument(1))::accept);
+            return null;
+        }).when(keyOrderedDispatcher).dispatchRecords(any(), any());
+        Post reply = new Post(1L, null, 5L, "reply", null, null, null);
+        reply.setId(2L);
+        PostData parent = post(1L, 0);
+        parent.setRepliesCount(3);
+        when(cacheService.existsPostById(2L)).thenReturn(true);
+        when(cacheService.getCachedPostById(1L)).thenReturn(parent);
+        // Produced before event IDs existed
+        PostCreatedEvent legacy = new PostCreatedEvent(null, reply);
+
+        ReflectionTestUtils.invokeMethod(consumer, "processPostEvents",
+                List.of(new ConsumerRecord<String, PostEvent>("post-created-topic", 0, 0, "2", legacy)));
+
+        assertEquals(4, parent.getRepliesCount());
+        verify(cacheService, times(1)).cachePostData(parent);
+        verify(eventDeduplicator, never()).markApplied(any());
+    }
+
+    private PostData post(Long id, int likes) {
+        PostData post = new PostData();
+        post.setId(id);
+        post.setLikesCount(likes);
+        return post;
+    }
+
+    private static List<Long> timestamps(int count) {
+        return new ArrayList<>(Collections.nCopies(count, 0L));
+    }
+}
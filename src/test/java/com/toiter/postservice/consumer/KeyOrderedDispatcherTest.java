@@ -0,0 +1,76 @@
+package com.toiter.postservice.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyOrderedDispatcherTest {
+
+    private KeyOrderedDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void recordsOfTheSameKeyKeepTheirOrder() {
+        dispatcher = new KeyOrderedDispatcher(true, 8);
+        List<ConsumerRecord<String, String>> records = List.of(
+                record(0, "1", "1-a"), record(1, "2", "2-a"), record(2, "1", "1-b"),
+                record(3, "3", "3-a"), record(4, "1", "1-c"), record(5, "2", "2-b"));
+
+        Map<String, List<String>> seen = new ConcurrentHashMap<>();
+        dispatcher.dispatch(records, value ->
+                seen.computeIfAbsent(value.substring(0, 1), key -> Collections.synchronizedList(new ArrayList<>())).add(value));
+
+        assertEquals(List.of("1-a", "1-b", "1-c"), seen.get("1"));
+        assertEquals(List.of("2-a", "2-b"), seen.get("2"));
+        assertEquals(List.of("3-a"), seen.get("3"));
+    }
+
+    @Test
+    void failurePointsAtFirstUnprocessedRecord() {
+        dispatcher = new KeyOrderedDispatcher(true, 8);
+        List<ConsumerRecord<String, String>> records = List.of(
+                record(0, "1", "ok"), record(1, "2", "fail"), record(2, "1", "ok"), record(3, "2", "skipped"));
+
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class, () ->
+                dispatcher.dispatch(records, value -> {
+                    if (value.equals("fail")) throw new IllegalStateException("boom");
+                }));
+
+        assertEquals(1, e.getIndex());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void sequentialModeStopsAtFirstFailure() {
+        dispatcher = new KeyOrderedDispatcher(false, 8);
+        List<String> processed = new ArrayList<>();
+        List<ConsumerRecord<String, String>> records = List.of(
+                record(0, "1", "a"), record(1, "2", "fail"), record(2, "3", "c"));
+
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class, () ->
+                dispatcher.dispatch(records, value -> {
+                    if (value.equals("fail")) throw new IllegalStateException("boom");
+                    processed.add(value);
+                }));
+
+        assertEquals(1, e.getIndex());
+        assertEquals(List.of("a"), processed);
+    }
+
+    private ConsumerRecord<String, String> record(long offset, String key, String value) {
+        return new ConsumerRecord<>("post-created-topic", 0, offset, key, value);
+    }
+}
@@ -0,0 +1,112 @@
+package com.toiter.postservice.consumer;
+
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.service.CacheService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ViewCountAggregatorTest {
+
+    @Mock
+    private CacheService cacheService;
+
+    @Mock
+    private EventDeduplicator eventDeduplicator;
+
+    @Mock
+    private EventLatencyRecorder eventLatencyRecorder;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    @Mock
+    private Acknowledgment firstAck;
+
+    @Mock
+    private Acknowledgment secondAck;
+
+    private ViewCountAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new ViewCountAggregator(cacheService, eventDeduplicator, eventLatencyRecorder, kafkaProducer, 1000, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void flushWritesSummedDeltasAndAcknowledges() {
+        PostData post = new PostData();
+        post.setId(1L);
+        post.setViewCount(10);
+        when(cacheService.getCachedPostsByIds(Set.of(1L, 2L))).thenReturn(Map.of(1L, post));
+
+        aggregator.add(List.of(1L, 1L, 2L), firstAck);
+        aggregator.add(List.of(1L), secondAck);
+        verifyNoInteractions(cacheService, firstAck, secondAck);
+
+        aggregator.flush();
+
+        assertEquals(13, post.getViewCount());
+        verify(cacheService).cachePostDataBatch(List.of(post));
+        verify(firstAck).acknowledge();
+        verify(secondAck).acknowledge();
+    }
+
+    @Test
+    void failedFlushKeepsDeltasAndAcknowledgments() {
+        PostData post = new PostData();
+        post.setId(1L);
+        post.setViewCount(0);
+        when(cacheService.getCachedPostsByIds(any()))
+                .thenThrow(new IllegalStateException("redis down"))
+                .thenReturn(Map.of(1L, post));
+
+        aggregator.add(List.of(1L, 1L), firstAck);
+        aggregator.flush();
+        verify(firstAck, never()).acknowledge();
+
+        aggregator.add(List.of(1L), secondAck);
+        aggregator.flush();
+
+        assertEquals(3, post.getViewCount());
+        verify(firstAck).acknowledge();
+        verify(secondAck).acknowledge();
+    }
+
+    @Test
+    void viewEventIdsAreKeptForTheShortViewWindow() {
+        UUID eventId = UUID.randomUUID();
+        when(cacheService.getCachedPostsByIds(any())).thenReturn(Map.of());
+
+        aggregator.add(List.of(1L), List.of(eventId), List.of(), firstAck);
+        aggregator.flush();
+
+        verify(eventDeduplicator).markApplied(List.of(eventId), Duration.ofMinutes(5));
+    }
+
+    @Test
+    void reachingThresholdFlushesImmediately() {
+        aggregator = new ViewCountAggregator(cacheService, eventDeduplicator, eventLatencyRecorder, kafkaProducer, 2, Duration.ofMinutes(5));
+        when(cacheService.getCachedPostsByIds(any())).thenReturn(Map.of());
+
+        aggregator.add(List.of(1L, 2L), firstAck);
+
+        verify(cacheService).getCachedPostsByIds(Set.of(1L, 2L));
+        verify(firstAck).acknowledge();
+    }
+}
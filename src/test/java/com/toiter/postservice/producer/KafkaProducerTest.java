@@ -0,0 +1,71 @@
+package com.toiter.postservice.producer;
+
+import com.toiter.postservice.model.LikeEvent;
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.model.PostEvent;
+import com.toiter.postservice.model.PostViewedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaProducerTest {
+
+    @Mock
+    private KafkaTemplate<String, PostEvent> kafkaTemplate;
+
+    @Mock
+    private KafkaTemplate<String, PostViewedEvent> kafkaTemplateForPostViewedEvent;
+
+    @Mock
+    private KafkaTemplate<String, LikeEvent> kafkaTemplateForLikedEvent;
+
+    @Mock
+    private KafkaTemplate<String, PostData> kafkaTemplateForPostSnapshot;
+
+    private KafkaProducer producer;
+
+    @BeforeEach
+    void setUp() {
+        producer = new KafkaProducer(kafkaTemplate, kafkaTemplateForPostViewedEvent, kafkaTemplateForLikedEvent,
+                kafkaTemplateForPostSnapshot, new SimpleMeterRegistry(), 50);
+    }
+
+    @Test
+    void sendPostEventsGivesUpAfterTheDeliveryTimeout() {
+        // The broker never acknowledges
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+
+        KafkaException thrown = assertThrows(KafkaException.class,
+                () -> producer.sendPostEvents(List.of(new ProducerRecord<>("post-created-topic", "1", null))));
+
+        assertInstanceOf(TimeoutException.class, thrown.getCause());
+    }
+
+    @Test
+    void sendPostEventsReportsTheFailedSend() {
+        CompletableFuture<SendResult<String, PostEvent>> failed = CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null), failed);
+
+        KafkaException thrown = assertThrows(KafkaException.class, () -> producer.sendPostEvents(List.of(
+                new ProducerRecord<>("post-created-topic", "1", null),
+                new ProducerRecord<>("post-deleted-topic", "2", null))));
+
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+    }
+}
@@ -0,0 +1,92 @@
+package com.toiter.postservice.producer;
+
+import com.toiter.postservice.service.OutboxService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxService outboxService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outboxService, meterRegistry, 2, 5, 24);
+    }
+
+    @Test
+    void drainsFullBatchesUntilAShortOne() {
+        when(outboxService.publishPending(2)).thenReturn(2, 2, 1);
+
+        relay.relay();
+
+        verify(outboxService, times(3)).publishPending(2);
+        assertEquals(5, meterRegistry.get("outbox.relay.published").counter().count());
+    }
+
+    @Test
+    void stopsAtTheBatchLimitPerRun() {
+        when(outboxService.publishPending(2)).thenReturn(2);
+
+        relay.relay();
+
+        verify(outboxService, times(5)).publishPending(2);
+    }
+
+    @Test
+    void failedPublishIsRetriedOnTheNextRunAndStillUpdatesLag() {
+        when(outboxService.publishPending(2)).thenThrow(new KafkaException("broker unavailable")).thenReturn(0);
+        when(outboxService.getOldestPendingCreatedAt()).thenReturn(LocalDateTime.now().minusSeconds(30));
+
+        relay.relay();
+        assertTrue(lagSeconds() >= 30);
+
+        relay.relay();
+        verify(outboxService, times(2)).publishPending(2);
+    }
+
+    @Test
+    void lagIsZeroWhenNothingIsPending() {
+        when(outboxService.publishPending(2)).thenReturn(0);
+        when(outboxService.getOldestPendingCreatedAt()).thenReturn(null);
+
+        relay.relay();
+
+        assertEquals(0, lagSeconds());
+    }
+
+    @Test
+    void lagKeepsTheLastValueWhenItCannotBeRead() {
+        when(outboxService.publishPending(2)).thenReturn(0);
+        when(outboxService.getOldestPendingCreatedAt())
+                .thenReturn(LocalDateTime.now().minusSeconds(10))
+                .thenThrow(new IllegalStateException("database down"));
+
+        relay.relay();
+        double before = lagSeconds();
+        relay.relay();
+
+        assertTrue(before >= 10);
+        assertEquals(before, lagSeconds());
+    }
+
+    private double lagSeconds() {
+        return meterRegistry.get("outbox.relay.lag.seconds").gauge().value();
+    }
+}
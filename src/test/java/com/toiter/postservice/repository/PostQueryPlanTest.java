@@ -0,0 +1,130 @@
+package com.toiter.postservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the plans of the {@link PostRepository} listing queries against a Postgres built from init.sql plus the
+ * Flyway migrations. Each query must be an index-only scan on its partial index, with no sort step.
+ * <p>
+ * The SQL mirrors what Hibernate generates for the JPQL queries. Needs Docker, skipped otherwise.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PostQueryPlanTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withCopyFileToContainer(MountableFile.forClasspathResource("db/usr-users.sql"), "/docker-entrypoint-initdb.d/01-usr-users.sql")
+            .withCopyFileToContainer(MountableFile.forHostPath(Path.of("init.sql")), "/docker-entrypoint-initdb.d/02-init.sql");
+
+    @BeforeAll
+    static void migrateAndSeed() throws SQLException {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .schemas("pst")
+                .createSchemas(false)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO usr.users (id) SELECT g FROM generate_series(1, 500) g");
+            // Every 5th post replies to the previous one, every 7th reposts the one before it, every 10th is deleted
+            statement.execute("""
+                    INSERT INTO pst.posts (id, parent_post_id, repost_parent_post_id, user_id, content, created_at, deleted)
+                    SELECT g,
+                           CASE WHEN g % 5 = 0 THEN g - 1 END,
+                           CASE WHEN g % 7 = 0 THEN g - 2 END,
+                           g % 500 + 1,
+                           'post ' || g,
+                           NOW() - g * INTERVAL '1 minute',
+                           g % 10 = 0
+                    FROM generate_series(1, 100000) g
+                    """);
+            statement.execute("VACUUM ANALYZE pst.posts");
+        }
+    }
+
+    @Test
+    void fetchAllPostIdsIsAnIndexOnlyScan() throws SQLException {
+        assertIndexOnlyScan("idx_posts_timeline", """
+                SELECT p.id FROM pst.posts p
+                WHERE p.deleted = false AND p.parent_post_id IS NULL
+                ORDER BY p.created_at DESC
+                OFFSET 0 ROWS FETCH FIRST 20 ROWS ONLY
+                """);
+    }
+
+    @Test
+    void fetchIdsByUserIdIsAnIndexOnlyScan() throws SQLException {
+        assertIndexOnlyScan("idx_posts_user_timeline", """
+                SELECT p.id FROM pst.posts p
+                WHERE p.user_id = 42 AND p.deleted = false AND p.parent_post_id IS NULL
+                ORDER BY p.created_at DESC
+                OFFSET 0 ROWS FETCH FIRST 20 ROWS ONLY
+                """);
+    }
+
+    @Test
+    void countByUserIdIsAnIndexOnlyScan() throws SQLException {
+        assertIndexOnlyScan("idx_posts_user_timeline", """
+                SELECT COUNT(p.id) FROM pst.posts p
+                WHERE p.user_id = 42 AND p.deleted = false AND p.parent_post_id IS NULL AND p.repost_parent_post_id IS NULL
+                """);
+    }
+
+    @Test
+    void findChildIdsByParentPostIdIsAnIndexOnlyScan() throws SQLException {
+        assertIndexOnlyScan("idx_posts_replies", """
+                SELECT p.id FROM pst.posts p
+                WHERE p.parent_post_id = 4
+                ORDER BY p.created_at DESC
+                OFFSET 0 ROWS FETCH FIRST 20 ROWS ONLY
+                """);
+    }
+
+    @Test
+    void findRepostIdsAfterIsAnIndexOnlyScan() throws SQLException {
+        assertIndexOnlyScan("idx_posts_reposts",
+                "SELECT id FROM pst.posts WHERE repost_parent_post_id = 5 AND id > 0 ORDER BY id LIMIT 1000");
+    }
+
+    private static void assertIndexOnlyScan(String index, String query) throws SQLException {
+        String plan = explain(query);
+        assertTrue(plan.contains("Index Only Scan using " + index), plan);
+        assertFalse(plan.contains("Sort"), plan);
+    }
+
+    private static String explain(String query) throws SQLException {
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + query)) {
+            StringJoiner plan = new StringJoiner("\n");
+            while (resultSet.next()) {
+                plan.add(resultSet.getString(1));
+            }
+            return plan.toString();
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}
@@ -0,0 +1,99 @@
+package com.toiter.postservice.serialization;
+
+import com.toiter.postservice.entity.Post;
+import com.toiter.postservice.model.*;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventCodecTest {
+
+    @Test
+    void postEventRoundTrip() {
+        Post post = new Post(10L, null, 7L, "olá, mundo", "https://cdn/img.png", 640, 480);
+        post.setId(42L);
+        post.setCreatedAt(LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_000));
+
+        PostCreatedEvent event = new PostCreatedEvent(post);
+        PostCreatedEvent decoded = (PostCreatedEvent) EventCodec.decode(EventCodec.encode(event));
+
+        assertEquals(event.getEventId(), decoded.getEventId());
+        Post copy = decoded.getPost();
+        assertEquals(42L, copy.getId());
+        assertEquals(10L, copy.getParentPostId());
+        assertNull(copy.getRepostParentId());
+        assertEquals(7L, copy.getUserId());
+        assertEquals("olá, mundo", copy.getContent());
+        assertEquals("https://cdn/img.png", copy.getMediaUrl());
+        assertEquals(640, copy.getMediaWidth());
+        assertEquals(480, copy.getMediaHeight());
+        assertEquals(post.getCreatedAt(), copy.getCreatedAt());
+        assertNull(copy.getDeletedAt());
+        assertFalse(copy.isDeleted());
+    }
+
+    @Test
+    void binaryIsSmallerThanJson() {
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        RecordHeaders binaryHeaders = new RecordHeaders();
+        PostLikedEvent event = new PostLikedEvent(123456L, 98765L);
+
+        byte[] json = new EventSerializer<LikeEvent>(EventEncoding.JSON).serialize("like-events-topic", jsonHeaders, event);
+        byte[] binary = new EventSerializer<LikeEvent>(EventEncoding.BINARY).serialize("like-events-topic", binaryHeaders, event);
+
+        int jsonSize = json.length + headerBytes(jsonHeaders);
+        int binarySize = binary.length + headerBytes(binaryHeaders);
+        assertTrue(binarySize * 4 < jsonSize, "binary " + binarySize + " bytes, json " + jsonSize + " bytes");
+        assertEquals(0, binaryHeaders.toArray().length);
+    }
+
+    @Test
+    void deserializerReadsBothEncodings() {
+        EventDeserializer<LikeEvent> deserializer = new EventDeserializer<>(LikeEvent.class);
+
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        byte[] json = new EventSerializer<LikeEvent>(EventEncoding.JSON).serialize("like-events-topic", jsonHeaders, new PostUnlikedEvent(1L, 2L));
+        byte[] binary = EventCodec.encode(new PostUnlikedEvent(1L, 2L));
+
+        for (LikeEvent event : new LikeEvent[]{deserializer.deserialize("like-events-topic", jsonHeaders, json),
+                deserializer.deserialize("like-events-topic", new RecordHeaders(), binary)}) {
+            assertInstanceOf(PostUnlikedEvent.class, event);
+            assertEquals(1L, event.getPostId());
+            assertEquals(2L, event.getUserId());
+        }
+    }
+
+    @Test
+    void readsVersionOnePayloadsWithoutEventId() {
+        byte[] v1 = EventCodec.encode(new PostViewedEvent(null, 5L, 6L));
+        v1[1] = 1;
+
+        PostViewedEvent decoded = (PostViewedEvent) EventCodec.decode(v1);
+
+        assertNull(decoded.getEventId());
+        assertEquals(5L, decoded.getPostId());
+        assertEquals(6L, decoded.getUserId());
+    }
+
+    @Test
+    void rejectsWrongTypeAndUnknownVersion() {
+        byte[] view = EventCodec.encode(new PostViewedEvent(1L, 2L));
+        assertThrows(SerializationException.class, () -> new EventDeserializer<>(LikeEvent.class).deserialize("like-events-topic", view));
+
+        view[1] = (byte) (EventCodec.VERSION + 1);
+        assertThrows(SerializationException.class, () -> EventCodec.decode(view));
+    }
+
+    private int headerBytes(RecordHeaders headers) {
+        int size = 0;
+        for (Header header : headers) {
+            size += header.key().length() + header.value().length;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,79 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.entity.AuthorPostCount;
+import com.toiter.postservice.entity.Post;
+import com.toiter.postservice.repository.AuthorPostCountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthorPostCounterTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    @Mock
+    private AuthorPostCountRepository authorPostCountRepository;
+
+    @Mock
+    private CacheService cacheService;
+
+    private AuthorPostCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = new AuthorPostCounter(authorPostCountRepository, cacheService, TTL);
+    }
+
+    @Test
+    void countsComeFromTheCacheAndOneQueryForTheMisses() {
+        when(cacheService.getAuthorPostCounts(List.of(1L, 2L, 3L))).thenReturn(Map.of(1L, 4L));
+        when(authorPostCountRepository.findAllOnPrimary(List.of(2L, 3L))).thenReturn(List.of(row(2L, 7L)));
+
+        Map<Long, Long> counts = counter.countsFor(List.of(1L, 2L, 3L, 2L));
+
+        assertEquals(Map.of(1L, 4L, 2L, 7L, 3L, 0L), counts);
+        verify(cacheService).cacheAuthorPostCountsIfAbsent(Map.of(2L, 7L, 3L, 0L), TTL);
+    }
+
+    @Test
+    void onlyTopLevelPostsAreCounted() {
+        when(authorPostCountRepository.add(1L, 1)).thenReturn(3L);
+
+        counter.postCreated(new Post(null, null, 1L, "post", null, null, null));
+        counter.postCreated(new Post(10L, null, 1L, "reply", null, null, null));
+        counter.postCreated(new Post(null, 10L, 1L, "", null, null, null));
+
+        verify(authorPostCountRepository, times(1)).add(1L, 1);
+        verify(cacheService).cacheAuthorPostCount(1L, 3L, TTL);
+    }
+
+    @Test
+    void alreadyDeletedPostIsNotCountedAgain() {
+        Post post = new Post(null, null, 1L, "post", null, null, null);
+        counter.postDeleted(post);
+        post.setDeleted(true);
+        counter.postDeleted(post);
+
+        verify(authorPostCountRepository, times(1)).add(anyLong(), anyLong());
+        verify(authorPostCountRepository).add(1L, -1);
+    }
+
+    private static AuthorPostCount row(Long userId, Long posts) {
+        AuthorPostCount row = new AuthorPostCount();
+        ReflectionTestUtils.setField(row, "userId", userId);
+        ReflectionTestUtils.setField(row, "posts", posts);
+        return row;
+    }
+}
@@ -0,0 +1,57 @@
+package com.toiter.postservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheMetricsTest {
+
+    private MeterRegistry registry;
+    private CacheMetrics metrics;
+
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+        metrics = new CacheMetrics(registry);
+    }
+
+    @Test
+    void lookupsAreTaggedAsHitOrMiss() {
+        metrics.recordLookup("post", "get", () -> "value");
+        metrics.recordLookup("post", "get", () -> null);
+        metrics.recordLookup("post", "get", () -> null);
+
+        assertEquals(1, counter("post", "get", CacheMetrics.HIT));
+        assertEquals(2, counter("post", "get", CacheMetrics.MISS));
+        assertEquals(3, registry.get("cache.latency").tag("keyspace", "post").timers()
+                .stream().mapToLong(t -> t.count()).sum());
+    }
+
+    @Test
+    void failuresAreTaggedAsError() {
+        assertThrows(IllegalStateException.class, () -> metrics.recordWrite("like", "set", () -> {
+            throw new IllegalStateException("redis down");
+        }));
+
+        assertEquals(1, counter("like", "set", CacheMetrics.ERROR));
+    }
+
+    @Test
+    void lockWaitGaugeTracksInFlightWaits() {
+        metrics.lockWaitStarted();
+        metrics.lockWaitStarted();
+        assertEquals(2, registry.get("cache.lock.waits.inflight").gauge().value());
+
+        metrics.lockWaitFinished();
+        assertEquals(1, registry.get("cache.lock.waits.inflight").gauge().value());
+    }
+
+    private double counter(String keyspace, String operation, String outcome) {
+        return registry.get("cache.requests")
+                .tags("keyspace", keyspace, "operation", operation, "outcome", outcome)
+                .counter().count();
+    }
+}
@@ -0,0 +1,73 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.PostLikedEvent;
+import com.toiter.postservice.model.PostUnlikedEvent;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.repository.LikeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LikeServiceTest {
+
+    @Mock
+    private LikeRepository likeRepository;
+
+    @Mock
+    private CacheService cacheService;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    @Mock
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    private LikeService likeService;
+
+    @BeforeEach
+    void setUp() {
+        likeService = new LikeService(likeRepository, cacheService, kafkaProducer, readYourWritesTracker);
+    }
+
+    @Test
+    void likeSendsAnEventWhenTheRowIsInserted() {
+        when(likeRepository.insertIfAbsent(10L, 1L)).thenReturn(Optional.of(100L));
+
+        likeService.likePost(10L, 1L);
+
+        verify(likeRepository, never()).existsByUserIdAndPostId(anyLong(), anyLong());
+        verify(cacheService).setLikeStatus(1L, 10L, true);
+        verify(kafkaProducer).sendLikedEvent(any(PostLikedEvent.class));
+    }
+
+    @Test
+    void repeatedLikeSendsNoEvent() {
+        when(likeRepository.insertIfAbsent(10L, 1L)).thenReturn(Optional.empty());
+
+        likeService.likePost(10L, 1L);
+
+        verify(cacheService, never()).setLikeStatus(anyLong(), anyLong(), anyBoolean());
+        verifyNoInteractions(kafkaProducer);
+    }
+
+    @Test
+    void unlikeSendsAnEventOnlyWhenALikeWasDeleted() {
+        when(likeRepository.deleteReturningId(10L, 1L)).thenReturn(Optional.of(100L), Optional.empty());
+
+        likeService.unlikePost(10L, 1L);
+        likeService.unlikePost(10L, 1L);
+
+        verify(cacheService).setLikeStatus(1L, 10L, false);
+        verify(kafkaProducer, times(1)).sendLikedEvent(any(PostUnlikedEvent.class));
+    }
+}
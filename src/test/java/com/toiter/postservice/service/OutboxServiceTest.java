@@ -0,0 +1,119 @@
+package com.toiter.postservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.toiter.postservice.entity.OutboxEvent;
+import com.toiter.postservice.entity.Post;
+import com.toiter.postservice.model.PostCreatedEvent;
+import com.toiter.postservice.model.PostDeletedEvent;
+import com.toiter.postservice.model.PostEvent;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.repository.OutboxRepository;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceTest {
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new OutboxService(outboxRepository, kafkaProducer, objectMapper);
+    }
+
+    @Test
+    void enqueueStoresTheSerializedEventKeyedByPost() throws Exception {
+        PostCreatedEvent event = new PostCreatedEvent(UUID.randomUUID(), post(7L));
+
+        outboxService.enqueue("post-created-topic", event);
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxRepository).save(saved.capture());
+        assertEquals("post-created-topic", saved.getValue().getTopic());
+        assertEquals(7L, saved.getValue().getAggregateId());
+        assertEquals(PostCreatedEvent.class.getName(), saved.getValue().getEventType());
+        PostCreatedEvent stored = objectMapper.readValue(saved.getValue().getPayload(), PostCreatedEvent.class);
+        assertEquals(event.getEventId(), stored.getEventId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishesPendingRowsInOrderBeforeMarkingThemPublished() throws Exception {
+        when(outboxRepository.lockPendingBatch(10)).thenReturn(List.of(
+                row(1L, "post-created-topic", new PostCreatedEvent(UUID.randomUUID(), post(7L))),
+                row(2L, "post-deleted-topic", new PostDeletedEvent(post(8L)))));
+
+        int published = outboxService.publishPending(10);
+
+        assertEquals(2, published);
+        ArgumentCaptor<List<ProducerRecord<String, PostEvent>>> records = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(kafkaProducer, outboxRepository);
+        inOrder.verify(kafkaProducer).sendPostEvents(records.capture());
+        inOrder.verify(outboxRepository).markPublished(eq(List.of(1L, 2L)), any());
+        assertEquals(List.of("7", "8"), records.getValue().stream().map(ProducerRecord::key).toList());
+        assertEquals(List.of("post-created-topic", "post-deleted-topic"),
+                records.getValue().stream().map(ProducerRecord::topic).toList());
+        assertInstanceOf(PostDeletedEvent.class, records.getValue().get(1).value());
+    }
+
+    @Test
+    void failedSendLeavesRowsPending() throws Exception {
+        when(outboxRepository.lockPendingBatch(anyInt())).thenReturn(List.of(
+                row(1L, "post-created-topic", new PostCreatedEvent(UUID.randomUUID(), post(7L)))));
+        doThrow(new KafkaException("broker unavailable")).when(kafkaProducer).sendPostEvents(any());
+
+        assertThrows(KafkaException.class, () -> outboxService.publishPending(10));
+
+        verify(outboxRepository, never()).markPublished(any(), any());
+    }
+
+    @Test
+    void emptyBatchSendsNothing() {
+        when(outboxRepository.lockPendingBatch(10)).thenReturn(List.of());
+
+        assertEquals(0, outboxService.publishPending(10));
+
+        verifyNoInteractions(kafkaProducer);
+        verify(outboxRepository, never()).markPublished(any(), any());
+    }
+
+    private OutboxEvent row(Long id, String topic, PostEvent event) throws Exception {
+        OutboxEvent row = new OutboxEvent(topic, event.getPost().getId(), event.getClass().getName(),
+                objectMapper.writeValueAsString(event));
+        row.setId(id);
+        row.setCreatedAt(LocalDateTime.now().minusSeconds(1));
+        return row;
+    }
+
+    private static Post post(Long id) {
+        Post post = new Post(null, null, 5L, "post " + id, null, null, null);
+        post.setId(id);
+        return post;
+    }
+}
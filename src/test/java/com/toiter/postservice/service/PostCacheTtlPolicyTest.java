@@ -0,0 +1,131 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.PostData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostCacheTtlPolicyTest {
+
+    private MutableClock clock;
+    private PostCacheTtlPolicy policy;
+
+    @BeforeEach
+    void setup() {
+        clock = new MutableClock(Instant.parse("2025-01-10T12:00:00Z"));
+        policy = new PostCacheTtlPolicy(Duration.ofMinutes(5), Duration.ofHours(1), Duration.ofHours(24),
+                Duration.ofHours(48), 3, 10, Duration.ofMinutes(10), 1000, clock);
+    }
+
+    @Test
+    void oldColdPostGetsShortTtl() {
+        PostData post = post(1L, LocalDateTime.now(clock).minusDays(365));
+        policy.recordAccess(1L);
+        assertEquals(PostCacheTtlPolicy.Tier.SHORT, policy.tierFor(post));
+        assertEquals(Duration.ofMinutes(5), policy.ttlFor(post));
+    }
+
+    @Test
+    void recentPostGetsLongTtl() {
+        PostData post = post(2L, LocalDateTime.now(clock).minusHours(2));
+        assertEquals(PostCacheTtlPolicy.Tier.LONG, policy.tierFor(post));
+    }
+
+    @Test
+    void frequentlyReadPostIsPinned() {
+        PostData post = post(3L, LocalDateTime.now(clock).minusDays(30));
+        for (int i = 0; i < 10; i++) {
+            policy.recordAccess(3L);
+        }
+        assertEquals(PostCacheTtlPolicy.Tier.PINNED, policy.tierFor(post));
+        assertEquals(Duration.ofHours(24), policy.ttlFor(post));
+    }
+
+    @Test
+    void accessScoreDecaysOverTime() {
+        PostData post = post(4L, LocalDateTime.now(clock).minusDays(30));
+        for (int i = 0; i < 10; i++) {
+            policy.recordAccess(4L);
+        }
+        clock.advance(Duration.ofMinutes(10));
+        assertEquals(5.0, policy.accessScore(4L), 0.001);
+        assertEquals(PostCacheTtlPolicy.Tier.LONG, policy.tierFor(post));
+
+        clock.advance(Duration.ofMinutes(30));
+        assertEquals(PostCacheTtlPolicy.Tier.SHORT, policy.tierFor(post));
+    }
+
+    @Test
+    void overflowDropsOnlyTheColdestCounters() {
+        policy = new PostCacheTtlPolicy(Duration.ofMinutes(5), Duration.ofHours(1), Duration.ofHours(24),
+                Duration.ofHours(48), 3, 10, Duration.ofMinutes(10), 10, clock);
+        for (long id = 1; id <= 8; id++) {
+            for (int i = 0; i < 5; i++) {
+                policy.recordAccess(id);
+            }
+        }
+        policy.recordAccess(9L);
+        clock.advance(Duration.ofMinutes(1));
+        policy.recordAccess(10L);
+        policy.recordAccess(10L);
+
+        // The eleventh post brings the counters over the limit of 10, back down to 9
+        policy.recordAccess(11L);
+
+        for (long id = 1; id <= 8; id++) {
+            assertTrue(policy.accessScore(id) > 4, "post " + id);
+        }
+        assertTrue(policy.accessScore(10L) > 1);
+        assertEquals(0, policy.accessScore(9L));
+        assertEquals(0, policy.accessScore(11L));
+    }
+
+    @Test
+    void deletedPostGetsShortTtl() {
+        PostData post = post(5L, LocalDateTime.now(clock));
+        post.setDeleted(true);
+        assertEquals(PostCacheTtlPolicy.Tier.SHORT, policy.tierFor(post));
+    }
+
+    private PostData post(Long id, LocalDateTime createdAt) {
+        PostData post = new PostData();
+        post.setId(id);
+        post.setCreatedAt(createdAt);
+        return post;
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.PostCounters;
+import com.toiter.postservice.model.PostData;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostCounterStoreTest {
+
+    @Mock
+    private ObjectProvider<StreamsBuilderFactoryBean> factoryBeanProvider;
+
+    @Mock
+    private StreamsBuilderFactoryBean factoryBean;
+
+    @Mock
+    private KafkaStreams kafkaStreams;
+
+    @Mock
+    private ReadOnlyKeyValueStore<String, PostCounters> store;
+
+    private PostCounterStore postCounterStore;
+
+    @BeforeEach
+    void setUp() {
+        postCounterStore = new PostCounterStore(factoryBeanProvider);
+    }
+
+    @Test
+    void returnsTheCountersOfPostsSeenBeingCreated() {
+        running();
+        PostCounters counters = new PostCounters().addLikes(3);
+        counters.setCreated(true);
+        when(store.get("1")).thenReturn(counters);
+
+        assertEquals(Optional.of(counters), postCounterStore.find(1L));
+    }
+
+    @Test
+    void postsCreatedBeforeTheTopologyHaveNoCounters() {
+        running();
+        when(store.get("1")).thenReturn(new PostCounters().addLikes(3));
+
+        assertTrue(postCounterStore.find(1L).isEmpty());
+    }
+
+    @Test
+    void missingOrUnreadyStreamsFallBackToTheDatabase() {
+        when(factoryBeanProvider.getIfAvailable()).thenReturn(null);
+        assertTrue(postCounterStore.find(1L).isEmpty());
+
+        when(factoryBeanProvider.getIfAvailable()).thenReturn(factoryBean);
+        when(factoryBean.getKafkaStreams()).thenReturn(kafkaStreams);
+        when(kafkaStreams.state()).thenReturn(KafkaStreams.State.REBALANCING);
+        assertTrue(postCounterStore.find(1L).isEmpty());
+
+        when(kafkaStreams.state()).thenReturn(KafkaStreams.State.RUNNING);
+        when(kafkaStreams.store(any())).thenThrow(new InvalidStateStoreException("migrating"));
+        assertTrue(postCounterStore.find(1L).isEmpty());
+    }
+
+    @Test
+    void applyToCopiesEveryCounter() {
+        PostCounters counters = new PostCounters().addLikes(1).addReplies(2).addReposts(3).addViews(4);
+        PostData postData = new PostData();
+
+        PostCounterStore.applyTo(postData, counters);
+
+        assertEquals(1, postData.getLikesCount());
+        assertEquals(2, postData.getRepliesCount());
+        assertEquals(3, postData.getRepostsCount());
+        assertEquals(4, postData.getViewCount());
+    }
+
+    private void running() {
+        when(factoryBeanProvider.getIfAvailable()).thenReturn(factoryBean);
+        when(factoryBean.getKafkaStreams()).thenReturn(kafkaStreams);
+        when(kafkaStreams.state()).thenReturn(KafkaStreams.State.RUNNING);
+        when(kafkaStreams.<ReadOnlyKeyValueStore<String, PostCounters>>store(any())).thenReturn(store);
+    }
+}
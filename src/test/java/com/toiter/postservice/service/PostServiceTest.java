@@ -0,0 +1,281 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.entity.Post;
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.model.PostRequest;
+import com.toiter.postservice.model.PostView;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.repository.PostRepository;
+import com.toiter.userservice.model.UserResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostServiceTest {
+
+    @Mock
+    private UserClientService userClientService;
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private LikeService likeService;
+    @Mock
+    private CacheService cacheService;
+    @Mock
+    private ImageService imageService;
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private PostCounterStore postCounterStore;
+    @Mock
+    private UniqueViewerCounter uniqueViewerCounter;
+    @Mock
+    private ViewIngestionBuffer viewIngestionBuffer;
+    @Mock
+    private ReadYourWritesTracker readYourWritesTracker;
+    @Mock
+    private AuthorPostCounter authorPostCounter;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    private PostService postService;
+
+    @BeforeEach
+    void setUp() {
+        postService = new PostService(userClientService, postRepository, likeService, cacheService, imageService,
+                outboxService, postCounterStore, uniqueViewerCounter, viewIngestionBuffer, readYourWritesTracker, authorPostCounter,
+                transactionTemplate, kafkaProducer);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        lenient().when(userClientService.getUserById(anyLong())).thenReturn(new UserResponse());
+        lenient().when(postCounterStore.find(anyLong())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void coldPageIsLoadedWithOneQueryInPageOrder() {
+        when(cacheService.getCachedPostsForRead(List.of(3L, 1L, 2L))).thenReturn(Map.of(1L, post(1L, null)));
+        when(postRepository.fetchPostDataByIds(List.of(3L, 2L))).thenReturn(List.of(post(2L, null), post(3L, null)));
+
+        List<PostData> posts = postService.getPostsByIds(List.of(3L, 1L, 2L), 7L);
+
+        assertEquals(List.of(3L, 1L, 2L), posts.stream().map(PostData::getId).toList());
+        verify(postRepository, times(1)).fetchPostDataByIds(any());
+        verify(postRepository, never()).fetchPostData(anyLong());
+        verify(cacheService).cachePostDataBatchIfAbsent(argThat(loaded -> loaded.size() == 2));
+    }
+
+    @Test
+    void deletedPostsInAMixedPageAreLeftOutAndNotCached() {
+        PostData cachedDeleted = post(2L, null);
+        cachedDeleted.setDeleted(true);
+        // Deleted after the query's snapshot was taken
+        PostData loadedDeleted = post(4L, null);
+        loadedDeleted.setDeleted(true);
+        PostData loadedLive = post(3L, null);
+        when(cacheService.getCachedPostsForRead(List.of(1L, 2L, 3L, 4L))).thenReturn(Map.of(1L, post(1L, null), 2L, cachedDeleted));
+        when(postRepository.fetchPostDataByIds(List.of(3L, 4L))).thenReturn(List.of(loadedLive, loadedDeleted));
+        when(cacheService.cachePostDataBatchIfAbsent(any())).thenAnswer(invocation -> List.copyOf(invocation.<Collection<PostData>>getArgument(0)));
+
+        List<PostData> posts = postService.getPostsByIds(List.of(1L, 2L, 3L, 4L), 7L);
+
+        assertEquals(List.of(1L, 3L), posts.stream().map(PostData::getId).toList());
+        verify(cacheService).cachePostDataBatchIfAbsent(List.of(loadedLive));
+        verify(kafkaProducer).sendPostSnapshots(List.of(loadedLive));
+    }
+
+    @Test
+    void onlyPostsTheFillCachedArePublishedAsSnapshots() {
+        PostData second = post(2L, null);
+        when(cacheService.getCachedPostsForRead(List.of(1L, 2L))).thenReturn(Map.of());
+        when(postRepository.fetchPostDataByIds(List.of(1L, 2L))).thenReturn(List.of(post(1L, null), second));
+        // A consumer cached post 1 between the miss and the fill
+        when(cacheService.cachePostDataBatchIfAbsent(any())).thenReturn(List.of(second));
+
+        postService.getPostsByIds(List.of(1L, 2L), 7L);
+
+        verify(kafkaProducer).sendPostSnapshots(List.of(second));
+    }
+
+    @Test
+    void singlePostFillIsPublishedAsASnapshot() {
+        PostData loaded = post(1L, null);
+        when(cacheService.trySetLock("lock:post:1", "1", 10)).thenReturn(true);
+        when(postRepository.fetchPostData(1L)).thenReturn(Optional.of(loaded));
+
+        postService.getPostById(1L, 0, 7L);
+
+        verify(cacheService).cachePostData(loaded);
+        verify(kafkaProducer).sendPostSnapshots(List.of(loaded));
+    }
+
+    @Test
+    void snapshotsPreferTheCachedCopy() {
+        when(cacheService.getCachedPostsByIds(List.of(1L, 2L))).thenReturn(Map.of(1L, post(1L, null)));
+        when(postRepository.fetchPostDataByIds(List.of(2L))).thenReturn(List.of(post(2L, null)));
+
+        List<PostData> snapshots = postService.getPostSnapshots(List.of(1L, 2L));
+
+        assertEquals(Set.of(1L, 2L), Set.copyOf(snapshots.stream().map(PostData::getId).toList()));
+        verify(cacheService, never()).cachePostDataBatchIfAbsent(any());
+        verifyNoInteractions(kafkaProducer, userClientService);
+    }
+
+    @Test
+    void repostedPostsAreLoadedTogetherBeforeEnrichment() {
+        when(cacheService.getCachedPostsForRead(List.of(1L, 2L))).thenReturn(Map.of());
+        when(postRepository.fetchPostDataByIds(List.of(1L, 2L))).thenReturn(List.of(post(1L, 10L), post(2L, 11L)));
+        when(cacheService.getCachedPostsForRead(Set.of(10L, 11L))).thenReturn(Map.of());
+        when(postRepository.fetchPostDataByIds(argThat(ids -> Set.copyOf(ids).equals(Set.of(10L, 11L)))))
+                .thenReturn(List.of(post(10L, null), post(11L, null)));
+        when(cacheService.getCachedPostById(10L)).thenReturn(post(10L, null));
+        when(cacheService.getCachedPostById(11L)).thenReturn(post(11L, null));
+
+        List<PostData> posts = postService.getPostsByIds(List.of(1L, 2L), 7L);
+
+        assertEquals(10L, posts.get(0).getRepostPostData().getId());
+        assertEquals(11L, posts.get(1).getRepostPostData().getId());
+        verify(postRepository, times(2)).fetchPostDataByIds(any());
+    }
+
+    @Test
+    void createPostCachesAndCallsUserServiceAfterTheTransaction() {
+        postService.createPost(new PostRequest(null, null, "hello", null, null, null), 5L);
+
+        InOrder inOrder = inOrder(transactionTemplate, postRepository, outboxService, cacheService, userClientService);
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(postRepository).save(any(Post.class));
+        inOrder.verify(outboxService).enqueue(eq("post-created-topic"), any());
+        inOrder.verify(cacheService).cachePostData(any());
+        inOrder.verify(userClientService).getUserById(5L);
+    }
+
+    @Test
+    void failedCreateLeavesNoCachedPost() {
+        doThrow(new IllegalStateException("outbox down")).when(outboxService).enqueue(any(), any());
+
+        assertThrows(IllegalStateException.class,
+                () -> postService.createPost(new PostRequest(null, null, "hello", null, null, null), 5L));
+
+        verifyNoInteractions(cacheService, userClientService, readYourWritesTracker);
+    }
+
+    @Test
+    void deletePostRemovesTheImageAfterTheTransaction() {
+        Post post = new Post(null, null, 5L, "hello", "images/1.png", 10, 10);
+        post.setId(1L);
+        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+        when(postRepository.softDelete(eq(1L), any())).thenReturn(1);
+
+        postService.deletePost(1L, 5L);
+
+        InOrder inOrder = inOrder(transactionTemplate, authorPostCounter, outboxService, imageService);
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(authorPostCounter).postDeleted(post);
+        inOrder.verify(outboxService).enqueue(eq("post-deleted-topic"), any());
+        inOrder.verify(imageService).deleteImage("images/1.png");
+    }
+
+    @Test
+    void failedDeleteKeepsTheImage() {
+        Post post = new Post(null, null, 5L, "hello", "images/1.png", 10, 10);
+        post.setId(1L);
+        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+        when(postRepository.softDelete(eq(1L), any())).thenReturn(1);
+        doThrow(new IllegalStateException("outbox down")).when(outboxService).enqueue(any(), any());
+
+        assertThrows(IllegalStateException.class, () -> postService.deletePost(1L, 5L));
+
+        verify(imageService, never()).deleteImage(any());
+    }
+
+    @Test
+    void concurrentDeleteThatLostTheRaceChangesNothing() {
+        Post post = new Post(null, null, 5L, "hello", "images/1.png", 10, 10);
+        post.setId(1L);
+        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+        when(postRepository.softDelete(eq(1L), any())).thenReturn(0);
+
+        postService.deletePost(1L, 5L);
+
+        verifyNoInteractions(authorPostCounter, outboxService, imageService);
+    }
+
+    @Test
+    void hllModeAddsTheEstimateToTheViewsCountedBeforeTheSwitch() {
+        PostData counted = post(1L, null);
+        counted.setViewCount(10);
+        when(uniqueViewerCounter.isEnabled()).thenReturn(true);
+        when(uniqueViewerCounter.estimateAll(List.of(1L))).thenReturn(Map.of(1L, 4L));
+        when(cacheService.getCachedPostsForRead(List.of(1L))).thenReturn(Map.of());
+        when(postRepository.fetchPostDataByIds(List.of(1L))).thenReturn(List.of(counted));
+
+        List<PostData> posts = postService.getPostsByIds(List.of(1L), 7L);
+
+        assertEquals(14, posts.get(0).getViewCount());
+    }
+
+    @Test
+    void viewPostsRejectsEmptyOversizedAndInvalidIds() {
+        assertThrows(IllegalArgumentException.class, () -> postService.viewPosts(null, 7L));
+        assertThrows(IllegalArgumentException.class, () -> postService.viewPosts(List.of(), 7L));
+        List<Long> tooMany = LongStream.rangeClosed(1, PostService.MAX_VIEWS_PER_REQUEST + 1).boxed().toList();
+        assertThrows(IllegalArgumentException.class, () -> postService.viewPosts(tooMany, 7L));
+        assertThrows(IllegalArgumentException.class, () -> postService.viewPosts(Arrays.asList(1L, null), 7L));
+        assertThrows(IllegalArgumentException.class, () -> postService.viewPosts(List.of(1L, 0L), 7L));
+        assertThrows(IllegalArgumentException.class, () -> postService.viewPosts(List.of(-3L), 7L));
+
+        verifyNoInteractions(viewIngestionBuffer);
+        verify(uniqueViewerCounter, never()).recordAll(any(), any());
+    }
+
+    @Test
+    void viewPostsCollapsesRepeatsInRequestOrder() {
+        when(viewIngestionBuffer.offerAll(any())).thenReturn(2);
+
+        postService.viewPosts(List.of(3L, 1L, 3L, 1L), 7L);
+
+        verify(viewIngestionBuffer).offerAll(List.of(new PostView(7L, 3L), new PostView(7L, 1L)));
+    }
+
+    @Test
+    void hllModeSkipsPostsCachedAsDeleted() {
+        PostData deleted = post(2L, null);
+        deleted.setDeleted(true);
+        when(uniqueViewerCounter.isEnabled()).thenReturn(true);
+        when(cacheService.getCachedPostsByIds(argThat(ids -> Set.copyOf(ids).equals(Set.of(1L, 2L, 3L)))))
+                .thenReturn(Map.of(1L, post(1L, null), 2L, deleted));
+
+        postService.viewPosts(List.of(1L, 2L, 3L, 2L), 7L);
+
+        // Post 3 isn't cached and is recorded; the persist job ignores IDs that turn out not to be posts
+        verify(uniqueViewerCounter).recordAll(Set.of(1L, 3L), 7L);
+        verifyNoInteractions(viewIngestionBuffer);
+    }
+
+    private static PostData post(Long id, Long repostParentId) {
+        return new PostData(id, null, repostParentId, 5L, "post " + id, null, null, null, 0, 0, 0, 0, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,71 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.CacheRebuildProgress;
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostSnapshotBackfillServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostService postService;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    private PostSnapshotBackfillService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PostSnapshotBackfillService(postRepository, postService, kafkaProducer, 2, 0);
+    }
+
+    @Test
+    void publishesEveryLivePostPageByPage() {
+        when(postRepository.count()).thenReturn(3L);
+        when(postRepository.findLiveIdsAfter(0L, 2)).thenReturn(List.of(1L, 4L));
+        when(postRepository.findLiveIdsAfter(4L, 2)).thenReturn(List.of(7L));
+        when(postRepository.findLiveIdsAfter(7L, 2)).thenReturn(List.of());
+        when(postService.getPostSnapshots(List.of(1L, 4L))).thenReturn(List.of(post(1L), post(4L)));
+        when(postService.getPostSnapshots(List.of(7L))).thenReturn(List.of(post(7L)));
+
+        service.run();
+
+        verify(kafkaProducer, times(2)).sendPostSnapshots(any());
+        CacheRebuildProgress progress = service.progress();
+        assertEquals(CacheRebuildProgress.State.COMPLETED, progress.state());
+        assertEquals(3, progress.recordsRead());
+        assertEquals(3, progress.postsWritten());
+    }
+
+    @Test
+    void failureIsReportedInTheProgress() {
+        when(postRepository.findLiveIdsAfter(0L, 2)).thenThrow(new IllegalStateException("database down"));
+
+        service.run();
+
+        assertEquals(CacheRebuildProgress.State.FAILED, service.progress().state());
+        assertEquals("database down", service.progress().error());
+        verifyNoInteractions(kafkaProducer);
+    }
+
+    private static PostData post(Long id) {
+        PostData post = new PostData();
+        post.setId(id);
+        return post;
+    }
+}
@@ -0,0 +1,121 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.CacheRebuildProgress;
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.producer.KafkaProducer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostSnapshotRebuildServiceTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition(KafkaProducer.POST_SNAPSHOTS_TOPIC, 0);
+
+    @Mock
+    private ConsumerFactory<String, PostData> consumerFactory;
+
+    @Mock
+    private CacheService cacheService;
+
+    private MockConsumer<String, PostData> consumer;
+    private PostSnapshotRebuildService service;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(KafkaProducer.POST_SNAPSHOTS_TOPIC,
+                List.of(new PartitionInfo(KafkaProducer.POST_SNAPSHOTS_TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, 4L));
+        when(consumerFactory.createConsumer()).thenReturn(consumer);
+        service = new PostSnapshotRebuildService(consumerFactory, cacheService, 500, 0, 10);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writesTheLatestSnapshotOfEachPostUpToTheEndOffsets() {
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(snapshot(0, post(1L, 3)));
+            consumer.addRecord(snapshot(1, post(2L, 5)));
+            consumer.addRecord(snapshot(2, post(1L, 4)));
+            consumer.addRecord(new ConsumerRecord<>(PARTITION.topic(), 0, 3, "3", null));
+            // Written after the rebuild started, left to the consumer
+            consumer.addRecord(snapshot(4, post(5L, 1)));
+        });
+        when(cacheService.cachePostDataBatchIfAbsent(any())).thenAnswer(invocation -> List.copyOf(invocation.<Collection<PostData>>getArgument(0)));
+
+        service.run();
+
+        ArgumentCaptor<Collection<PostData>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(cacheService).cachePostDataBatchIfAbsent(written.capture());
+        assertEquals(List.of(1L, 2L), written.getValue().stream().map(PostData::getId).toList());
+        assertEquals(4, written.getValue().iterator().next().getLikesCount());
+
+        CacheRebuildProgress progress = service.progress();
+        assertEquals(CacheRebuildProgress.State.COMPLETED, progress.state());
+        assertEquals(4, progress.totalRecords());
+        assertEquals(4, progress.recordsRead());
+        assertEquals(2, progress.postsWritten());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void splitsOnePollIntoSeveralBatches() {
+        service = new PostSnapshotRebuildService(consumerFactory, cacheService, 2, 0, 10);
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(snapshot(0, post(1L, 1)));
+            consumer.addRecord(snapshot(1, post(2L, 1)));
+            consumer.addRecord(snapshot(2, post(3L, 1)));
+            consumer.addRecord(snapshot(3, post(4L, 1)));
+        });
+        when(cacheService.cachePostDataBatchIfAbsent(any())).thenAnswer(invocation -> List.copyOf(invocation.<Collection<PostData>>getArgument(0)));
+
+        service.run();
+
+        ArgumentCaptor<Collection<PostData>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(cacheService, times(2)).cachePostDataBatchIfAbsent(written.capture());
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L, 4L)), written.getAllValues().stream()
+                .map(batch -> batch.stream().map(PostData::getId).toList())
+                .toList());
+        assertEquals(4, service.progress().postsWritten());
+    }
+
+    @Test
+    void emptyTopicCompletesWithoutWriting() {
+        consumer.updateEndOffsets(Map.of(PARTITION, 0L));
+
+        service.run();
+
+        verify(cacheService, never()).cachePostDataBatchIfAbsent(any());
+        assertEquals(CacheRebuildProgress.State.COMPLETED, service.progress().state());
+    }
+
+    private static ConsumerRecord<String, PostData> snapshot(long offset, PostData post) {
+        return new ConsumerRecord<>(PARTITION.topic(), 0, offset, String.valueOf(post.getId()), post);
+    }
+
+    private static PostData post(Long id, int likes) {
+        PostData post = new PostData();
+        post.setId(id);
+        post.setLikesCount(likes);
+        return post;
+    }
+}
@@ -0,0 +1,137 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.entity.RepostCascadeProgress;
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.repository.PostRepository;
+import com.toiter.postservice.repository.RepostCascadeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RepostCascadeServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private RepostCascadeRepository repostCascadeRepository;
+
+    @Mock
+    private CacheService cacheService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    private RepostCascadeService service;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        service = new RepostCascadeService(postRepository, repostCascadeRepository, cacheService, transactionTemplate, kafkaProducer, 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void processesRepostsInChunksAndPatchesCache() {
+        when(repostCascadeRepository.findById(1L)).thenReturn(Optional.empty());
+        when(postRepository.findRepostIdsAfter(1L, 0L, 2)).thenReturn(List.of(10L, 11L));
+        when(postRepository.findRepostIdsAfter(1L, 11L, 2)).thenReturn(List.of(12L));
+        when(postRepository.findRepostIdsAfter(1L, 12L, 2)).thenReturn(List.of());
+        when(postRepository.deletePureReposts(List.of(10L, 11L))).thenReturn(List.of(10L));
+        when(postRepository.deletePureReposts(List.of(12L))).thenReturn(List.of());
+
+        PostData quote = cached(11L, "quote");
+        quote.setRepostPostData(cached(1L, "original"));
+        Map<Long, PostData> cache = new HashMap<>();
+        cache.put(10L, sanitized(cached(10L, "")));
+        cache.put(11L, sanitized(quote));
+        when(cacheService.getCachedPostsByIds(any())).thenAnswer(invocation -> {
+            Map<Long, PostData> found = new HashMap<>();
+            for (Long id : (Collection<Long>) invocation.getArgument(0)) {
+                if (cache.containsKey(id)) {
+                    found.put(id, cache.get(id));
+                }
+            }
+            return found;
+        });
+
+        service.cascadeDelete(1L);
+
+        assertTrue(cache.get(10L).isDeleted());
+        // The cached quote never held the deleted post, so it is left as it is
+        assertNull(cache.get(11L).getRepostPostData());
+        assertFalse(cache.get(11L).isDeleted());
+        assertEquals("quote", cache.get(11L).getContent());
+        ArgumentCaptor<Collection<PostData>> patched = ArgumentCaptor.forClass(Collection.class);
+        verify(cacheService, times(2)).cachePostDataBatch(patched.capture());
+        assertEquals(List.of(10L), patched.getAllValues().getFirst().stream().map(PostData::getId).toList());
+        verify(repostCascadeRepository, times(2)).save(any(RepostCascadeProgress.class));
+        verify(repostCascadeRepository).deleteById(1L);
+    }
+
+    @Test
+    void resumesAfterTheLastCommittedChunk() {
+        when(repostCascadeRepository.findById(1L)).thenReturn(Optional.of(new RepostCascadeProgress(1L, 11L)));
+        when(postRepository.findRepostIdsAfter(1L, 11L, 2)).thenReturn(List.of());
+
+        service.cascadeDelete(1L);
+
+        verify(postRepository, never()).findRepostIdsAfter(1L, 0L, 2);
+        verify(postRepository, never()).deletePureReposts(any());
+        verify(repostCascadeRepository).deleteById(1L);
+    }
+
+    /**
+     * Writes the post through a real {@link CacheService} and returns the entry it stores in Redis.
+     */
+    @SuppressWarnings("unchecked")
+    private PostData sanitized(PostData post) {
+        RedisTemplate<String, PostData> postTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, PostData> valueOps = mock(ValueOperations.class);
+        RedisTemplate<String, Long> setTemplate = mock(RedisTemplate.class);
+        when(postTemplate.opsForValue()).thenReturn(valueOps);
+        when(setTemplate.opsForSet()).thenReturn(mock(SetOperations.class));
+        PostCacheTtlPolicy ttlPolicy = new PostCacheTtlPolicy(Duration.ofMinutes(5), Duration.ofHours(1), Duration.ofHours(24),
+                Duration.ofHours(48), 3, 50, Duration.ofMinutes(10), 100, Clock.systemUTC());
+        new CacheService(postTemplate, setTemplate, null, null, null, null, null, null, ttlPolicy,
+                new CacheMetrics(new SimpleMeterRegistry())).cachePostData(post);
+
+        ArgumentCaptor<PostData> stored = ArgumentCaptor.forClass(PostData.class);
+        verify(valueOps).set(eq("post:id:" + post.getId()), stored.capture(), any(Duration.class));
+        return stored.getValue();
+    }
+
+    private PostData cached(Long id, String content) {
+        PostData post = new PostData();
+        post.setId(id);
+        post.setContent(content);
+        return post;
+    }
+}
@@ -0,0 +1,108 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.entity.PostViewers;
+import com.toiter.postservice.model.PostData;
+import com.toiter.postservice.producer.KafkaProducer;
+import com.toiter.postservice.repository.PostViewersRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UniqueViewerCounterTest {
+
+    private static final Duration TTL = Duration.ofDays(30);
+
+    @Mock
+    private CacheService cacheService;
+
+    @Mock
+    private PostViewersRepository postViewersRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    private UniqueViewerCounter counter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        counter = new UniqueViewerCounter(cacheService, postViewersRepository, transactionTemplate, kafkaProducer, "hll", TTL, 2);
+    }
+
+    @Test
+    void persistsEstimatesAndReplacesCachedViewCounts() {
+        byte[] registers = {1, 2, 3};
+        PostData cached = new PostData();
+        cached.setId(1L);
+        cached.setViewCount(3);
+        when(cacheService.popDirtyViewerPosts(2)).thenReturn(List.of(1L));
+        when(cacheService.countViewers(List.of(1L))).thenReturn(Map.of(1L, 42L));
+        when(cacheService.getViewerRegisters(List.of(1L))).thenReturn(Map.of(1L, registers));
+        when(cacheService.getCachedPostsByIds(List.of(1L))).thenReturn(Map.of(1L, cached));
+        // 42 viewers since the switch on top of 10 views counted in rows mode
+        when(postViewersRepository.upsert(1L, 42L, registers)).thenReturn(52L);
+
+        counter.persist();
+
+        assertEquals(52, cached.getViewCount());
+        verify(cacheService).cachePostDataBatch(argThat(posts -> posts.size() == 1 && posts.contains(cached)));
+        verify(cacheService, never()).mergeViewerRegisters(any(), any(), any());
+    }
+
+    @Test
+    void mergesPersistedRegistersWhenTheHyperLogLogWasLost() {
+        byte[] stored = {9};
+        when(cacheService.popDirtyViewerPosts(2)).thenReturn(List.of(1L));
+        when(postViewersRepository.findAllById(List.of(1L))).thenReturn(List.of(new PostViewers(1L, 100L, stored)));
+        when(cacheService.countViewers(List.of(1L))).thenReturn(Map.of(1L, 1L), Map.of(1L, 101L));
+        when(cacheService.getViewerRegisters(List.of(1L))).thenReturn(Map.of(1L, stored));
+
+        counter.persist();
+
+        verify(cacheService).mergeViewerRegisters(1L, stored, TTL);
+        verify(postViewersRepository).upsert(1L, 101L, stored);
+    }
+
+    @Test
+    void failedPersistPutsThePostsBack() {
+        when(cacheService.popDirtyViewerPosts(2)).thenReturn(List.of(1L, 2L));
+        when(cacheService.countViewers(List.of(1L, 2L))).thenThrow(new IllegalStateException("redis down"));
+
+        counter.persist();
+
+        verify(cacheService).markViewerPostsDirty(List.of(1L, 2L));
+        verify(postViewersRepository, never()).upsert(any(), any(), any());
+    }
+
+    @Test
+    void rowModeNeverTouchesRedis() {
+        UniqueViewerCounter rows = new UniqueViewerCounter(cacheService, postViewersRepository, transactionTemplate, kafkaProducer, "rows", TTL, 2);
+
+        rows.persist();
+
+        assertFalse(rows.isEnabled());
+        verify(cacheService, never()).popDirtyViewerPosts(anyInt());
+    }
+}
@@ -0,0 +1,106 @@
+package com.toiter.postservice.service;
+
+import com.toiter.postservice.model.PostView;
+import com.toiter.postservice.model.PostViewedEvent;
+import com.toiter.postservice.producer.KafkaProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ViewIngestionBufferTest {
+
+    private static final Duration WINDOW = Duration.ofHours(24);
+
+    @Mock
+    private CacheService cacheService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ViewIngestionBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new ViewIngestionBuffer(cacheService, jdbcTemplate, kafkaProducer, meterRegistry, 3, 10, WINDOW);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushDropsRepeatsAndSendsEventsForInsertedRowsOnly() {
+        PostView first = new PostView(1L, 10L);
+        PostView second = new PostView(1L, 11L);
+        buffer.offer(first);
+        buffer.offer(first);
+        buffer.offer(second);
+        when(cacheService.claimViews(List.of(first, second), WINDOW)).thenReturn(List.of(first, second));
+        // The second one was already stored, e.g. after its dedup key expired
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        buffer.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT DO NOTHING"), rows.capture());
+        assertArrayEquals(new Object[]{1L, 10L}, rows.getValue().get(0));
+        assertArrayEquals(new Object[]{1L, 11L}, rows.getValue().get(1));
+
+        ArgumentCaptor<PostViewedEvent> event = ArgumentCaptor.forClass(PostViewedEvent.class);
+        verify(kafkaProducer).sendPostViewedEvent(event.capture());
+        assertEquals(10L, event.getValue().getPostId());
+        assertEquals(1, meterRegistry.counter("views.buffer.duplicates").count());
+        assertEquals(0, meterRegistry.get("views.buffer.size").gauge().value());
+    }
+
+    @Test
+    void fullBufferDropsInsteadOfBlocking() {
+        assertTrue(buffer.offer(new PostView(1L, 1L)));
+        assertTrue(buffer.offer(new PostView(1L, 2L)));
+        assertTrue(buffer.offer(new PostView(1L, 3L)));
+
+        assertFalse(buffer.offer(new PostView(1L, 4L)));
+        assertEquals(1, meterRegistry.counter("views.buffer.dropped").count());
+        assertEquals(3, meterRegistry.get("views.buffer.size").gauge().value());
+    }
+
+    @Test
+    void offerAllQueuesWhatFitsAndCountsTheRestAsDropped() {
+        buffer.offer(new PostView(1L, 1L));
+
+        int accepted = buffer.offerAll(List.of(new PostView(2L, 1L), new PostView(2L, 2L), new PostView(2L, 3L)));
+
+        assertEquals(2, accepted);
+        assertEquals(1, meterRegistry.counter("views.buffer.dropped").count());
+        assertEquals(3, meterRegistry.get("views.buffer.size").gauge().value());
+    }
+
+    @Test
+    void failedInsertReleasesTheDedupWindow() {
+        PostView view = new PostView(1L, 10L);
+        buffer.offer(view);
+        when(cacheService.claimViews(List.of(view), WINDOW)).thenReturn(List.of(view));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("db down"));
+
+        buffer.flushOnShutdown();
+
+        verify(cacheService).releaseViews(List.of(view));
+        verify(kafkaProducer, never()).sendPostViewedEvent(any());
+    }
+}
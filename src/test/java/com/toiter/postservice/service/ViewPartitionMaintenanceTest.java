@@ -0,0 +1,81 @@
+package com.toiter.postservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ViewPartitionMaintenanceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private ViewPartitionMaintenance maintenance;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        Clock clock = Clock.fixed(Instant.parse("2026-10-18T12:00:00Z"), ZoneOffset.UTC);
+        maintenance = new ViewPartitionMaintenance(jdbcTemplate, transactionTemplate, 1, 2, false, clock);
+    }
+
+    @Test
+    void createsUpcomingPartitionsAndDetachesExpiredOnesAfterRollingThemUp() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), anyLong())).thenReturn(true);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("view_p2026_07", "view_p2026_08", "view_p2026_10", "view_legacy"));
+
+        maintenance.maintain();
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS pst.view_p2026_10 PARTITION OF pst.view FOR VALUES FROM ('2026-10-01') TO ('2026-11-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS pst.view_p2026_11 PARTITION OF pst.view FOR VALUES FROM ('2026-11-01') TO ('2026-12-01')");
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).update(contains("FROM pst.view_p2026_07"));
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE pst.view DETACH PARTITION pst.view_p2026_07");
+        verify(jdbcTemplate, never()).update(contains("view_p2026_08"));
+        verify(jdbcTemplate, never()).execute(contains("DETACH PARTITION pst.view_p2026_08"));
+        verify(jdbcTemplate, never()).execute(startsWith("DROP"));
+    }
+
+    @Test
+    void doesNothingWhileAnotherInstanceHoldsTheLock() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), anyLong())).thenReturn(false);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("view_p2020_01"));
+
+        maintenance.maintain();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).update(anyString());
+    }
+
+    @Test
+    void partitionNamesRoundTrip() {
+        assertEquals("view_p2026_03", ViewPartitionMaintenance.partitionName(YearMonth.of(2026, 3)));
+        assertEquals(YearMonth.of(2026, 3), ViewPartitionMaintenance.monthOf("view_p2026_03"));
+        assertNull(ViewPartitionMaintenance.monthOf("view_legacy"));
+    }
+}
@@ -0,0 +1,5 @@
+-- Tabela mínima do serviço de usuários, referenciada pelas chaves estrangeiras de init.sql
+CREATE SCHEMA usr;
+CREATE TABLE usr.users (
+                           id BIGSERIAL PRIMARY KEY
+);